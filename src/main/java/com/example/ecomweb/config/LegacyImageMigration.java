@@ -0,0 +1,56 @@
+package com.example.ecomweb.config;
+
+import com.example.ecomweb.service.ImageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.util.List;
+
+// Moves images still stored in the old products.image_data column into the image store.
+// Runs before DataInitializer; a no-op once the column is empty or was never created.
+@Component
+@Order(0)
+public class LegacyImageMigration implements CommandLineRunner {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ImageService imageService;
+    
+    @Override
+    public void run(String... args) {
+        List<Long> productIds;
+        try {
+            productIds = jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE image_data IS NOT NULL", Long.class);
+        } catch (DataAccessException e) {
+            // Fresh schema without the legacy column
+            return;
+        }
+        
+        if (productIds.isEmpty()) {
+            return;
+        }
+        
+        System.out.println("Migrating " + productIds.size() + " product images to the image store...");
+        for (Long productId : productIds) {
+            // One row at a time so only a single image is ever held in memory
+            byte[] imageData = jdbcTemplate.queryForObject(
+                "SELECT image_data FROM products WHERE id = ?", byte[].class, productId);
+            try {
+                String hash = imageService.storeImage(imageData);
+                jdbcTemplate.update(
+                    "UPDATE products SET image_hash = ?, image_size = ?, image_data = NULL WHERE id = ?",
+                    hash, (long) imageData.length, productId);
+            } catch (IOException e) {
+                System.err.println("Failed to migrate image for product " + productId + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Product image migration finished!");
+    }
+}
\ No newline at end of file
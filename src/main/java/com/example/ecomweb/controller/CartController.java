@@ -1,17 +1,15 @@
 package com.example.ecomweb.controller;
 
+import com.example.ecomweb.dto.CartOperation;
 import com.example.ecomweb.entity.CartItem;
-import com.example.ecomweb.entity.User;
 import com.example.ecomweb.service.CartService;
-import com.example.ecomweb.service.UserService;
+import com.example.ecomweb.service.CartStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -21,9 +19,6 @@ public class CartController {
     @Autowired
     private CartService cartService;
     
-    @Autowired
-    private UserService userService;
-    
     @PostMapping("/add")
     public ResponseEntity<Map<String, Object>> addToCart(@RequestBody Map<String, Object> request) {
         Map<String, Object> response = new HashMap<>();
@@ -32,13 +27,12 @@ public class CartController {
             Long productId = Long.valueOf(request.get("productId").toString());
             Integer quantity = Integer.valueOf(request.get("quantity").toString());
             
-            Optional<User> user = userService.findById(userId);
-            if (!user.isPresent()) {
+            if (!cartService.userExists(userId)) {
                 response.put("error", "User not found");
                 return ResponseEntity.badRequest().body(response);
             }
             
-            CartItem cartItem = cartService.addToCart(user.get(), productId, quantity);
+            CartItem cartItem = cartService.addToCart(userId, productId, quantity);
             response.put("message", "Product added to cart successfully");
             response.put("cartItem", cartItem);
             return ResponseEntity.ok(response);
@@ -50,18 +44,43 @@ public class CartController {
     
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<CartItem>> getCartItems(@PathVariable Long userId) {
-        Optional<User> user = userService.findById(userId);
-        if (!user.isPresent()) {
+        if (!cartService.userExists(userId)) {
             return ResponseEntity.notFound().build();
         }
         
-        List<CartItem> cartItems = cartService.getCartItems(user.get());
+        List<CartItem> cartItems = cartService.getCartItems(userId);
         return ResponseEntity.ok(cartItems);
     }
     
+    // Cart sync in one round trip: [{"op": "add"|"set"|"remove", "productId"|"itemId", "quantity"}]
+    @PatchMapping("/{userId}")
+    public ResponseEntity<Map<String, Object>> applyCartOperations(
+            @PathVariable Long userId,
+            @RequestBody List<CartOperation> operations) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!cartService.userExists(userId)) {
+                response.put("error", "User not found");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            List<CartItem> cartItems = cartService.applyOperations(userId, operations);
+            CartStore.Totals totals = cartService.getCartTotals(userId);
+            response.put("message", "Cart updated successfully");
+            response.put("cartItems", cartItems);
+            response.put("total", totals.subtotal());
+            response.put("itemCount", totals.lineCount());
+            response.put("unitCount", totals.unitCount());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     @PutMapping("/update/{cartItemId}")
     public ResponseEntity<Map<String, Object>> updateCartItem(
-            @PathVariable Long cartItemId, 
+            @PathVariable Long cartItemId,
             @RequestBody Map<String, Integer> request) {
         Map<String, Object> response = new HashMap<>();
         try {
@@ -96,17 +115,16 @@ public class CartController {
     
     @GetMapping("/total/{userId}")
     public ResponseEntity<Map<String, Object>> getCartTotal(@PathVariable Long userId) {
-        Optional<User> user = userService.findById(userId);
-        if (!user.isPresent()) {
+        if (!cartService.userExists(userId)) {
             return ResponseEntity.notFound().build();
         }
         
-        BigDecimal total = cartService.getCartTotal(user.get());
-        long itemCount = cartService.getCartItemCount(user.get());
+        CartStore.Totals totals = cartService.getCartTotals(userId);
         
         Map<String, Object> response = new HashMap<>();
-        response.put("total", total);
-        response.put("itemCount", itemCount);
+        response.put("total", totals.subtotal());
+        response.put("itemCount", totals.lineCount());
+        response.put("unitCount", totals.unitCount());
         return ResponseEntity.ok(response);
     }
     
@@ -114,13 +132,12 @@ public class CartController {
     public ResponseEntity<Map<String, String>> clearCart(@PathVariable Long userId) {
         Map<String, String> response = new HashMap<>();
         try {
-            Optional<User> user = userService.findById(userId);
-            if (!user.isPresent()) {
+            if (!cartService.userExists(userId)) {
                 response.put("error", "User not found");
                 return ResponseEntity.badRequest().body(response);
             }
             
-            cartService.clearCart(user.get());
+            cartService.clearCart(userId);
             response.put("message", "Cart cleared successfully");
             return ResponseEntity.ok(response);
         } catch (Exception e) {
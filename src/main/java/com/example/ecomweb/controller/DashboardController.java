@@ -3,9 +3,17 @@ package com.example.ecomweb.controller;
 import com.example.ecomweb.service.UserService;
 import com.example.ecomweb.service.ProductService;
 import com.example.ecomweb.service.OrderService;
+import com.example.ecomweb.service.CartService;
+import com.example.ecomweb.service.StockReservationService;
+import com.example.ecomweb.service.LowStockIndex;
+import com.example.ecomweb.service.AbandonedCartSweeper;
+import com.example.ecomweb.service.OrderIntakeService;
+import com.example.ecomweb.service.OrderArchiver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,6 +32,24 @@ public class DashboardController {
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private LowStockIndex lowStockIndex;
+    
+    @Autowired
+    private AbandonedCartSweeper abandonedCartSweeper;
+    
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+    
+    @Autowired
+    private OrderArchiver orderArchiver;
+    
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -49,7 +75,7 @@ public class DashboardController {
             long pendingOrders = orderService.getPendingOrdersCount();
             stats.put("pendingOrders", pendingOrders);
             
-            // Get low stock products count (products with stock <= 5)
+            // Get low stock products count (products at or below the alert threshold)
             long lowStockProducts = productService.getLowStockProductsCount();
             stats.put("lowStockProducts", lowStockProducts);
             
@@ -66,4 +92,58 @@ public class DashboardController {
             return ResponseEntity.ok(stats);
         }
     }
+    
+    @GetMapping("/low-stock")
+    public ResponseEntity<Map<String, Object>> getLowStockProducts(
+            @RequestParam(value = "threshold", required = false) Integer threshold,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(productService.getLowStockProducts(threshold, Math.max(0, Math.min(limit, 500))));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // Server-sent events named low-stock, out-of-stock and restocked as products cross the threshold
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStockAlerts() {
+        return lowStockIndex.subscribe();
+    }
+    
+    @GetMapping("/product-cache")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productService.getProductCacheStats());
+    }
+    
+    @GetMapping("/cart-store")
+    public ResponseEntity<Map<String, Object>> getCartStoreStats() {
+        return ResponseEntity.ok(cartService.getCartStoreStats());
+    }
+    
+    @GetMapping("/cart-sweeper")
+    public ResponseEntity<Map<String, Object>> getCartSweeperStats() {
+        return ResponseEntity.ok(abandonedCartSweeper.getStats());
+    }
+    
+    @GetMapping("/order-intake")
+    public ResponseEntity<Map<String, Object>> getOrderIntakeStats() {
+        return ResponseEntity.ok(orderIntakeService.getStats());
+    }
+    
+    @GetMapping("/order-archive")
+    public ResponseEntity<Map<String, Object>> getOrderArchiveStats() {
+        return ResponseEntity.ok(orderArchiver.getStats());
+    }
+    
+    @GetMapping("/hot-stock")
+    public ResponseEntity<Map<String, Object>> getHotStockStats() {
+        return ResponseEntity.ok(productService.getHotStockStats());
+    }
+    
+    @GetMapping("/reservations")
+    public ResponseEntity<Map<String, Object>> getReservationStats() {
+        return ResponseEntity.ok(stockReservationService.getStats());
+    }
 }
\ No newline at end of file
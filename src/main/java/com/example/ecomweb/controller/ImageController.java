@@ -1,24 +1,44 @@
 package com.example.ecomweb.controller;
 
 import com.example.ecomweb.entity.Product;
+import com.example.ecomweb.service.ImageVariantService;
 import com.example.ecomweb.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
 @CrossOrigin(origins = "*")
 public class ImageController {
     
+    // Request attributes understood by Tomcat's NIO connector for zero-copy file responses
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    
     @Autowired
     private ProductService productService;
     
@@ -58,32 +78,113 @@ public class ImageController {
     }
     
     @GetMapping("/product/{productId}")
-    public ResponseEntity<byte[]> getProductImage(@PathVariable Long productId) {
-        try {
-            Optional<Product> productOpt = productService.getProductById(productId);
-            
-            if (!productOpt.isPresent()) {
-                return ResponseEntity.notFound().build();
+    public void getProductImage(
+            @PathVariable Long productId,
+            @RequestParam(value = "size", required = false) String size,
+            @RequestParam(value = "v", required = false) String version,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<Product> productOpt = productService.getProductById(productId);
+        
+        if (!productOpt.isPresent() || productOpt.get().getImageHash() == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        
+        Product product = productOpt.get();
+        String hash = product.getImageHash();
+        
+        // Resized variants are produced in the background; until then serve the original
+        Path file = null;
+        boolean servesRequested = size == null || size.isBlank();
+        String eTag = "\"" + hash + "\"";
+        String contentType = product.getImageType() != null ? product.getImageType() : MediaType.IMAGE_JPEG_VALUE;
+        if (size != null && !size.isBlank()) {
+            ImageVariantService.Size variantSize;
+            try {
+                variantSize = ImageVariantService.Size.fromParam(size);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+                return;
             }
-            
-            Product product = productOpt.get();
-            byte[] imageData = product.getImageData();
-            
-            if (imageData == null || imageData.length == 0) {
-                return ResponseEntity.notFound().build();
+            file = productService.getProductImageVariantPath(product, variantSize);
+            if (file != null) {
+                servesRequested = true;
+                eTag = "\"" + hash + "-" + variantSize.name().toLowerCase() + "\"";
+                contentType = MediaType.IMAGE_JPEG_VALUE;
             }
-            
-            HttpHeaders headers = new HttpHeaders();
-            String contentType = product.getImageType();
-            if (contentType != null) {
-                headers.setContentType(MediaType.parseMediaType(contentType));
-            } else {
-                headers.setContentType(MediaType.IMAGE_JPEG);
+        }
+        if (file == null) {
+            file = productService.getProductImagePath(product);
+        }
+        if (file == null || !Files.isReadable(file)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        
+        // URLs carrying the content hash never change meaning, so they may be cached for good;
+        // bare product URLs are revalidated against the content-hash ETag. So is the original
+        // standing in for a variant not generated yet, or it would stay cached under the variant's URL.
+        CacheControl cacheControl = hash.equals(version) && servesRequested
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+        
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+        
+        // A single byte range is honoured; multi-range requests get the whole file, which RFC 9110 allows
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(eTag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (start > 0 || end < length - 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+        
+        // Tomcat's sendfile hands the file to the kernel once the response is committed, so the
+        // bytes never enter the JVM; other containers fall back to FileChannel.transferTo
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long sent = channel.transferTo(position, end + 1 - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
             }
-            
-            return new ResponseEntity<>(imageData, headers, HttpStatus.OK);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
@@ -99,12 +200,7 @@ public class ImageController {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
             
-            Product product = productOpt.get();
-            product.setImageData(null);
-            product.setImageName(null);
-            product.setImageType(null);
-            
-            productService.updateProduct(product);
+            productService.removeProductImage(productOpt.get());
             
             response.put("message", "Product image deleted successfully");
             return ResponseEntity.ok(response);
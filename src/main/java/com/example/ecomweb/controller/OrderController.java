@@ -1,14 +1,26 @@
 package com.example.ecomweb.controller;
 
+import com.example.ecomweb.dto.CursorPage;
+import com.example.ecomweb.dto.OrderSummary;
 import com.example.ecomweb.entity.Order;
+import com.example.ecomweb.entity.OrderRequest;
 import com.example.ecomweb.entity.User;
+import com.example.ecomweb.service.OrderExportService;
+import com.example.ecomweb.service.OrderIntakeService;
+import com.example.ecomweb.service.OrderQueueFullException;
 import com.example.ecomweb.service.OrderService;
 import com.example.ecomweb.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -17,20 +29,40 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class OrderController {
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Autowired
     private OrderService orderService;
     
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+    
+    @Autowired
+    private OrderExportService orderExportService;
+    
+    // With an Idempotency-Key header the order is only queued: 202 plus a status URL to poll
     @PostMapping("/create")
-    public ResponseEntity<Map<String, Object>> createOrder(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> createOrder(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         Map<String, Object> response = new HashMap<>();
         try {
             Long userId = Long.valueOf(request.get("userId").toString());
             String shippingAddress = request.get("shippingAddress").toString();
             String paymentMethod = request.get("paymentMethod").toString();
             
+            if (idempotencyKey != null) {
+                if (!userService.existsById(userId)) {
+                    response.put("error", "User not found");
+                    return ResponseEntity.badRequest().body(response);
+                }
+                return toRequestResponse(orderIntakeService.accept(userId, idempotencyKey, shippingAddress, paymentMethod));
+            }
+            
             Optional<User> user = userService.findById(userId);
             if (!user.isPresent()) {
                 response.put("error", "User not found");
@@ -43,21 +75,45 @@ public class OrderController {
             response.put("totalAmount", order.getTotalAmount());
             response.put("status", order.getStatus());
             return ResponseEntity.ok(response);
+        } catch (OrderQueueFullException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             response.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(response);
         }
     }
     
+    @GetMapping("/requests/{requestId}")
+    public ResponseEntity<Map<String, Object>> getOrderRequest(@PathVariable Long requestId) {
+        Optional<OrderRequest> orderRequest = orderIntakeService.getRequest(requestId);
+        if (!orderRequest.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        return toRequestResponse(orderRequest.get());
+    }
+    
+    // Summaries only, newest first; the line items come from /api/orders/{orderId}
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Order>> getUserOrders(@PathVariable Long userId) {
-        Optional<User> user = userService.findById(userId);
-        if (!user.isPresent()) {
+    public ResponseEntity<Map<String, Object>> getUserOrders(
+            @PathVariable Long userId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (!userService.existsById(userId)) {
             return ResponseEntity.notFound().build();
         }
-        
-        List<Order> orders = orderService.getUserOrders(user.get());
-        return ResponseEntity.ok(orders);
+        Map<String, Object> response = new HashMap<>();
+        try {
+            return ResponseEntity.ok(toPageResponse(orderService.getUserOrderHistory(userId, after, pageSize(limit))));
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
     
     @GetMapping("/{orderId}")
@@ -68,14 +124,54 @@ public class OrderController {
     }
     
     @GetMapping("/admin/all")
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<Map<String, Object>> getAllOrders(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Order.OrderStatus orderStatus = status == null || status.isBlank()
+                    ? null : Order.OrderStatus.valueOf(status.toUpperCase());
+            return ResponseEntity.ok(toPageResponse(orderService.getOrderSummaries(orderStatus, after, pageSize(limit))));
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // Reconciliation export streamed from a database cursor; 'from' and 'to' are inclusive days.
+    // Bounded by spring.mvc.async.request-timeout: an export still running then is cut off
+    // mid-stream and the client's file ends early, so long ranges should be split up.
+    @GetMapping("/admin/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "format", required = false) String format) {
+        OrderExportService.Format exportFormat;
+        String orderStatus;
+        try {
+            exportFormat = OrderExportService.Format.fromParam(format);
+            orderStatus = status == null || status.isBlank() ? null : Order.OrderStatus.valueOf(status.toUpperCase()).name();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String filename = "orders" + (from != null ? "-" + from : "") + (to != null ? "-" + to : "")
+                + "." + exportFormat.name().toLowerCase();
+        StreamingResponseBody body = out -> orderExportService.exportOrders(from, to, orderStatus, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
     }
     
     @PutMapping("/admin/status/{orderId}")
     public ResponseEntity<Map<String, Object>> updateOrderStatus(
-            @PathVariable Long orderId, 
+            @PathVariable Long orderId,
             @RequestBody Map<String, String> request) {
         Map<String, Object> response = new HashMap<>();
         try {
@@ -96,27 +192,63 @@ public class OrderController {
         }
     }
     
+    // Same page of summaries as /admin/all?status=, archived orders included
     @GetMapping("/admin/status/{status}")
-    public ResponseEntity<List<Order>> getOrdersByStatus(@PathVariable String status) {
+    public ResponseEntity<Map<String, Object>> getOrdersByStatus(
+            @PathVariable String status,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
         try {
             Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
-            List<Order> orders = orderService.getOrdersByStatus(orderStatus);
-            return ResponseEntity.ok(orders);
+            return ResponseEntity.ok(toPageResponse(orderService.getOrderSummaries(orderStatus, after, pageSize(limit))));
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         }
     }
     
     @GetMapping("/admin/stats")
     public ResponseEntity<Map<String, Object>> getOrderStats() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalOrders", orderService.getAllOrders().size());
+        stats.put("totalOrders", orderService.getTotalOrdersCount());
         stats.put("pendingOrders", orderService.getPendingOrdersCount());
-        stats.put("confirmedOrders", orderService.getOrdersByStatus(Order.OrderStatus.CONFIRMED).size());
-        stats.put("shippedOrders", orderService.getOrdersByStatus(Order.OrderStatus.SHIPPED).size());
-        stats.put("deliveredOrders", orderService.getOrdersByStatus(Order.OrderStatus.DELIVERED).size());
-        stats.put("cancelledOrders", orderService.getOrdersByStatus(Order.OrderStatus.CANCELLED).size());
+        stats.put("confirmedOrders", orderService.getOrdersCountByStatus(Order.OrderStatus.CONFIRMED));
+        stats.put("shippedOrders", orderService.getOrdersCountByStatus(Order.OrderStatus.SHIPPED));
+        stats.put("deliveredOrders", orderService.getOrdersCountByStatus(Order.OrderStatus.DELIVERED));
+        stats.put("cancelledOrders", orderService.getOrdersCountByStatus(Order.OrderStatus.CANCELLED));
         
         return ResponseEntity.ok(stats);
     }
+    
+    private int pageSize(int limit) {
+        return limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
+    
+    private Map<String, Object> toPageResponse(CursorPage<OrderSummary> page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", page.getItems());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasMore", page.isHasMore());
+        return response;
+    }
+    
+    private ResponseEntity<Map<String, Object>> toRequestResponse(OrderRequest orderRequest) {
+        String statusUrl = "/api/orders/requests/" + orderRequest.getId();
+        Map<String, Object> response = new HashMap<>();
+        response.put("requestId", orderRequest.getId());
+        response.put("status", orderRequest.getStatus());
+        response.put("statusUrl", statusUrl);
+        if (orderRequest.getOrderId() != null) {
+            response.put("orderId", orderRequest.getOrderId());
+            response.put("orderUrl", "/api/orders/" + orderRequest.getOrderId());
+        }
+        if (orderRequest.getError() != null) {
+            response.put("error", orderRequest.getError());
+        }
+        if (orderRequest.getStatus() == OrderRequest.Status.QUEUED) {
+            return ResponseEntity.accepted().location(URI.create(statusUrl)).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
@@ -1,62 +1,250 @@
 package com.example.ecomweb.controller;
 
+import com.example.ecomweb.dto.CursorPage;
+import com.example.ecomweb.dto.ProductSort;
 import com.example.ecomweb.entity.Product;
+import com.example.ecomweb.service.ProductExportService;
+import com.example.ecomweb.service.ProductFacetIndex;
+import com.example.ecomweb.service.ProductImportService;
 import com.example.ecomweb.service.ProductService;
+import com.example.ecomweb.service.ProductSuggestIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "*")
 public class ProductController {
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    // Clients may store responses but must revalidate them; unchanged data then costs a 304
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+    
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private ProductImportService productImportService;
+    
+    @Autowired
+    private ProductExportService productExportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(products);
+    }
+    
+    @GetMapping("/page")
+    public ResponseEntity<Map<String, Object>> getProductPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productPage(null, false, after, limit, sort);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
         Optional<Product> product = productService.getProductById(id);
-        return product.map(ResponseEntity::ok)
+        if (product.isPresent() && productNotModified(product.get(), request)) {
+            return null;
+        }
+        return product.map(body -> ResponseEntity.ok().cacheControl(REVALIDATE).body(body))
                      .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category, WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         List<Product> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(products);
+    }
+    
+    @GetMapping("/category/{category}/page")
+    public ResponseEntity<Map<String, Object>> getProductPageByCategory(
+            @PathVariable String category,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productPage(category, false, after, limit, sort);
     }
     
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getAllCategories() {
+    public ResponseEntity<List<String>> getAllCategories(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         List<String> categories = productService.getAllCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(categories);
+    }
+    
+    @GetMapping("/facets")
+    public ResponseEntity<Map<String, Object>> getFacets(
+            @RequestParam(value = "category", required = false) List<String> categories,
+            @RequestParam(value = "brand", required = false) List<String> brands,
+            @RequestParam(value = "price", required = false) List<String> priceBuckets,
+            @RequestParam(value = "inStock", required = false) Boolean inStock,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        Map<String, Object> facets = productService.getFacets(
+                new ProductFacetIndex.FacetFilter(categories, brands, priceBuckets, inStock));
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(facets);
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestIndex.Suggestion>> suggestProducts(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        List<ProductSuggestIndex.Suggestion> suggestions = productService.suggestProducts(prefix, limit);
+        return ResponseEntity.ok(suggestions);
     }
     
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String keyword) {
-        List<Product> products = productService.searchProducts(keyword);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        List<Product> products = productService.searchProducts(
+                keyword, Math.max(offset, 0), limit == null || limit <= 0 ? Integer.MAX_VALUE : limit);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(products);
+    }
+    
+    @GetMapping("/search/page")
+    public ResponseEntity<Map<String, Object>> searchProductPage(
+            @RequestParam String keyword,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int pageSize = limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+            CursorPage<Product> page = productService.searchProductPage(keyword, after, pageSize);
+            response.put("items", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
     
     @GetMapping("/available")
-    public ResponseEntity<List<Product>> getAvailableProducts() {
+    public ResponseEntity<List<Product>> getAvailableProducts(WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         List<Product> products = productService.getAvailableProducts();
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(products);
+    }
+    
+    @GetMapping("/available/page")
+    public ResponseEntity<Map<String, Object>> getAvailableProductPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "sort", required = false) String sort,
+            WebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productPage(null, true, after, limit, sort);
+    }
+    
+    private ResponseEntity<Map<String, Object>> productPage(String category, boolean availableOnly,
+                                                            String after, int limit, String sort) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int pageSize = limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+            CursorPage<Product> page = productService.getProductPage(
+                    category, availableOnly, ProductSort.fromParam(sort), after, pageSize);
+            response.put("items", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
+            return ResponseEntity.ok().cacheControl(REVALIDATE).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    // Conditional GET for catalog-wide responses: decided from the catalog version before any
+    // data is loaded. On a match Spring has already written the 304, so the handler returns null.
+    private boolean catalogNotModified(WebRequest request) {
+        return revalidated(request,
+                request.checkNotModified(productService.getCatalogETag(), productService.getCatalogLastModified()));
+    }
+    
+    private boolean productNotModified(Product product, WebRequest request) {
+        if (product.getUpdatedAt() == null) {
+            return false;
+        }
+        Instant updatedAt = product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant();
+        String eTag = "\"p" + product.getId() + "-" + Long.toHexString(updatedAt.getEpochSecond())
+                + "." + Integer.toHexString(updatedAt.getNano()) + "\"";
+        return revalidated(request, request.checkNotModified(eTag, updatedAt.toEpochMilli()));
+    }
+    
+    // A 304 must repeat the caching policy, otherwise Spring Security stamps it with no-store
+    private boolean revalidated(WebRequest request, boolean notModified) {
+        if (notModified && request instanceof NativeWebRequest nativeRequest) {
+            HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
+            }
+        }
+        return notModified;
     }
     
     @PostMapping
@@ -73,6 +261,63 @@ public class ProductController {
         }
     }
     
+    // Streams the request body (text/csv with a header row, or application/x-ndjson) into the
+    // catalog and answers with NDJSON events: row errors and per-batch progress as they happen,
+    // then a final summary line
+    @PostMapping("/import")
+    public void importProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ProductImportService.Format format;
+        try {
+            format = ProductImportService.Format.fromContentType(request.getContentType());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), e.getMessage());
+            return;
+        }
+        
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter writer = response.getWriter();
+        Consumer<Map<String, Object>> events = event -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+                writer.flush();
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        
+        try (InputStream body = request.getInputStream()) {
+            productImportService.importProducts(body, format, events);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "error");
+            event.put("error", e.getMessage());
+            events.accept(event);
+        }
+    }
+    
+    // Full catalog feed (?format=ndjson|csv, optional ?category=) streamed row by row. Bounded by
+    // spring.mvc.async.request-timeout; past it the stream is cut off and the file is truncated.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "category", required = false) String category) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String filename = "products." + exportFormat.name().toLowerCase();
+        StreamingResponseBody body = out -> productExportService.exportProducts(category, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
     @PostMapping("/with-image")
     public ResponseEntity<Map<String, Object>> createProductWithImage(
             @RequestParam("name") String name,
@@ -117,17 +362,16 @@ public class ProductController {
                     return ResponseEntity.badRequest().body(response);
                 }
 
-                try {
-                    byte[] imageBytes = image.getBytes();
-
-                    if (imageBytes.length > 10 * 1024 * 1024) {
-                        response.put("error", "Image is too large for database storage");
-                        return ResponseEntity.badRequest().body(response);
-                    }
-
-                    product.setImageData(imageBytes);
-                    product.setImageName(image.getOriginalFilename());
-                    product.setImageType(contentType);
+                // Streamed from the spooled part; never read into a byte array
+                try (InputStream imageStream = image.getInputStream()) {
+                    Product savedProduct = productService.saveProductWithImage(
+                            product, imageStream, image.getOriginalFilename());
+                    response.put("message", "Product created successfully");
+                    response.put("product", savedProduct);
+                    return ResponseEntity.ok(response);
+                } catch (IllegalArgumentException ex) {
+                    response.put("error", ex.getMessage());
+                    return ResponseEntity.badRequest().body(response);
                 } catch (IOException ex) {
                     System.err.println("=== IO ERROR: Failed to process image ===");
                     ex.printStackTrace();
@@ -213,15 +457,15 @@ public class ProductController {
                     return ResponseEntity.badRequest().body(response);
                 }
 
-                try {
-                    byte[] imageBytes = image.getBytes();
-                    if (imageBytes.length > 10 * 1024 * 1024) {
-                        response.put("error", "Image is too large for database storage");
-                        return ResponseEntity.badRequest().body(response);
-                    }
-                    existingProduct.setImageData(imageBytes);
-                    existingProduct.setImageName(image.getOriginalFilename());
-                    existingProduct.setImageType(contentType);
+                try (InputStream imageStream = image.getInputStream()) {
+                    Product updatedProduct = productService.saveProductWithImage(
+                            existingProduct, imageStream, image.getOriginalFilename());
+                    response.put("message", "Product updated successfully");
+                    response.put("product", updatedProduct);
+                    return ResponseEntity.ok(response);
+                } catch (IllegalArgumentException ex) {
+                    response.put("error", ex.getMessage());
+                    return ResponseEntity.badRequest().body(response);
                 } catch (IOException ex) {
                     response.put("error", "Failed to process image: " + ex.getMessage());
                     return ResponseEntity.status(500).body(response);
@@ -260,4 +504,30 @@ public class ProductController {
             return ResponseEntity.badRequest().body(response);
         }
     }
+    
+    // Flash-sale mode: the product's stock is split over in-memory shards until switched off
+    @PutMapping("/{id}/hot-stock")
+    public ResponseEntity<Map<String, Object>> enableHotStock(
+            @PathVariable Long id,
+            @RequestParam(value = "shards", required = false) Integer shards) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int shardCount = shards != null ? shards : Runtime.getRuntime().availableProcessors();
+            productService.enableHotStock(id, shardCount);
+            response.put("message", "Hot stock mode enabled");
+            response.put("shards", shardCount);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("error", "Failed to enable hot stock mode: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    @DeleteMapping("/{id}/hot-stock")
+    public ResponseEntity<Map<String, Object>> disableHotStock(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        productService.disableHotStock(id);
+        response.put("message", "Hot stock mode disabled");
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
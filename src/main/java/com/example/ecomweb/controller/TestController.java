@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
@@ -101,12 +102,10 @@ public class TestController {
             
             // Handle image if provided
             if (image != null && !image.isEmpty()) {
-                try {
-                    byte[] imageBytes = image.getBytes();
-                    product.setImageData(imageBytes);
-                    product.setImageName(image.getOriginalFilename());
-                    product.setImageType(image.getContentType());
-                    response.put("debug_image_processed", "Image data set successfully");
+                try (InputStream imageStream = image.getInputStream()) {
+                    product = productService.saveProductWithImage(
+                            product, imageStream, image.getOriginalFilename());
+                    response.put("debug_image_processed", "Image stored as " + product.getImageHash());
                 } catch (Exception e) {
                     response.put("error", "Failed to process image: " + e.getMessage());
                     return ResponseEntity.badRequest().body(response);
@@ -114,7 +113,7 @@ public class TestController {
             }
             
             // Try to save
-            Product savedProduct = productService.saveProduct(product);
+            Product savedProduct = product.getId() != null ? product : productService.saveProduct(product);
             response.put("message", "Product created successfully with debug info");
             response.put("product_id", savedProduct.getId());
             response.put("product_name", savedProduct.getName());
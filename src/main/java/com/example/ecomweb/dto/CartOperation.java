@@ -0,0 +1,25 @@
+package com.example.ecomweb.dto;
+
+// One step of a batched cart update: "add" a quantity, "set" a line to a quantity, or "remove" it.
+// Lines are addressed by productId, or by itemId for set/remove.
+public class CartOperation {
+    
+    private String op;
+    private Long productId;
+    private Long itemId;
+    private Integer quantity;
+    
+    public CartOperation() {}
+    
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+    
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Long getItemId() { return itemId; }
+    public void setItemId(Long itemId) { this.itemId = itemId; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.ecomweb.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque "after" token for order history: order date and id of the last row on the previous page
+public class OrderCursor {
+    
+    private final LocalDateTime orderDate;
+    private final Long lastId;
+    
+    public OrderCursor(LocalDateTime orderDate, Long lastId) {
+        this.orderDate = orderDate;
+        this.lastId = lastId;
+    }
+    
+    public static OrderCursor after(OrderSummary summary) {
+        return new OrderCursor(summary.getOrderDate(), summary.getId());
+    }
+    
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            return new OrderCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    public String encode() {
+        String raw = orderDate + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public LocalDateTime getOrderDate() { return orderDate; }
+    
+    public Long getLastId() { return lastId; }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.example.ecomweb.dto;
+
+import com.example.ecomweb.entity.Order;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One row of an order-history page: the order's own columns plus its line count, so a page
+// never loads order items, products or the user. The admin listing adds the customer.
+public class OrderSummary {
+    
+    private final Long id;
+    private final LocalDateTime orderDate;
+    private final Order.OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final long itemCount;
+    private Long userId;
+    private String customerName;
+    private String customerEmail;
+    private String shippingAddress;
+    
+    public OrderSummary(Long id, LocalDateTime orderDate, Order.OrderStatus status,
+                        BigDecimal totalAmount, Long itemCount) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount != null ? itemCount : 0;
+    }
+    
+    public OrderSummary(Long id, LocalDateTime orderDate, Order.OrderStatus status, BigDecimal totalAmount,
+                        Long itemCount, Long userId, String customerName, String customerEmail,
+                        String shippingAddress) {
+        this(id, orderDate, status, totalAmount, itemCount);
+        this.userId = userId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.shippingAddress = shippingAddress;
+    }
+    
+    public Long getId() { return id; }
+    
+    public LocalDateTime getOrderDate() { return orderDate; }
+    
+    public Order.OrderStatus getStatus() { return status; }
+    
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    
+    public long getItemCount() { return itemCount; }
+    
+    public Long getUserId() { return userId; }
+    
+    public String getCustomerName() { return customerName; }
+    
+    public String getCustomerEmail() { return customerEmail; }
+    
+    public String getShippingAddress() { return shippingAddress; }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.example.ecomweb.dto;
+
+import com.example.ecomweb.entity.Product;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque "after" token: the sort plus the sort key and id of the last row on the previous page
+public class ProductCursor {
+    
+    private final ProductSort sort;
+    private final String sortValue;
+    private final Long lastId;
+    
+    public ProductCursor(ProductSort sort, String sortValue, Long lastId) {
+        this.sort = sort;
+        this.sortValue = sortValue;
+        this.lastId = lastId;
+    }
+    
+    public static ProductCursor after(ProductSort sort, Product product) {
+        String sortValue = switch (sort) {
+            case NEWEST -> product.getCreatedAt().toString();
+            case PRICE -> product.getPrice().toPlainString();
+            case ID -> "";
+            case RELEVANCE -> throw new IllegalArgumentException("Relevance cursors are positional");
+        };
+        return new ProductCursor(sort, sortValue, product.getId());
+    }
+    
+    public static ProductCursor atOffset(int offset, Long lastId) {
+        return new ProductCursor(ProductSort.RELEVANCE, String.valueOf(offset), lastId);
+    }
+    
+    public static ProductCursor decode(String token, ProductSort expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            ProductCursor cursor = new ProductCursor(ProductSort.valueOf(parts[0]), parts[1], Long.valueOf(parts[2]));
+            if (cursor.sort != expectedSort) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort");
+            }
+            // Validate the sort key eagerly so a tampered token is a 400, not a query error
+            cursor.getCreatedAt();
+            cursor.getPrice();
+            cursor.getOffset();
+            return cursor;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    public String encode() {
+        String raw = sort.name() + "|" + sortValue + "|" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public ProductSort getSort() { return sort; }
+    
+    public Long getLastId() { return lastId; }
+    
+    public LocalDateTime getCreatedAt() {
+        return sort == ProductSort.NEWEST ? LocalDateTime.parse(sortValue) : null;
+    }
+    
+    public BigDecimal getPrice() {
+        return sort == ProductSort.PRICE ? new BigDecimal(sortValue) : null;
+    }
+    
+    public int getOffset() {
+        return sort == ProductSort.RELEVANCE ? Math.max(Integer.parseInt(sortValue), 0) : 0;
+    }
+}
\ No newline at end of file
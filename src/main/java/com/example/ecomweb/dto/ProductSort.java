@@ -0,0 +1,19 @@
+package com.example.ecomweb.dto;
+
+// Stable catalog orderings; every one ends in the id so keyset seeks never skip or repeat rows
+public enum ProductSort {
+    ID, NEWEST, PRICE,
+    // Search only: BM25 rank from the search index, paged by position
+    RELEVANCE;
+    
+    public static ProductSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        try {
+            return ProductSort.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sort: " + value);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.ecomweb.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A DELIVERED or CANCELLED order moved out of 'orders' by OrderArchiver. Same columns and ids
+// as the hot row, read-only from then on; the customer and products are plain ids so old
+// history does not pin rows in other tables.
+@Entity
+@Table(name = "orders_archive", indexes = {
+    @Index(name = "idx_orders_archive_user_order_date_id", columnList = "user_id, order_date, id"),
+    @Index(name = "idx_orders_archive_order_date_id", columnList = "order_date, id"),
+    @Index(name = "idx_orders_archive_status_order_date_id", columnList = "status, order_date, id")
+})
+public class ArchivedOrder {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "order_date")
+    private LocalDateTime orderDate;
+    
+    @Enumerated(EnumType.STRING)
+    private Order.OrderStatus status;
+    
+    private BigDecimal totalAmount;
+    
+    private String shippingAddress;
+    private String paymentMethod;
+    
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+    
+    // Constructors
+    public ArchivedOrder() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public LocalDateTime getOrderDate() { return orderDate; }
+    public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
+    
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+    
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    
+    public String getShippingAddress() { return shippingAddress; }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
+    
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.example.ecomweb.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+// A line of an ArchivedOrder, keeping its original order_items id
+@Entity
+@Table(name = "order_items_archive", indexes = {
+    @Index(name = "idx_order_items_archive_order_id", columnList = "order_id")
+})
+public class ArchivedOrderItem {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    private Integer quantity;
+    private BigDecimal price;
+    
+    // Constructors
+    public ArchivedOrderItem() {}
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+}
\ No newline at end of file
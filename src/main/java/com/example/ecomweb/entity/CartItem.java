@@ -1,9 +1,13 @@
 package com.example.ecomweb.entity;
 
 import jakarta.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+    // Abandoned-cart sweeper walks users in id order looking for old rows
+    @Index(name = "idx_cart_items_user_updated_at", columnList = "user_id, updated_at")
+})
 public class CartItem {
     
     @Id
@@ -20,6 +24,10 @@ public class CartItem {
     
     private Integer quantity;
     
+    // Bumped by every write from CartStore; carts whose newest row is old count as abandoned
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
     // Constructors
     public CartItem() {}
     
@@ -41,4 +49,12 @@ public class CartItem {
     
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
 }
\ No newline at end of file
@@ -7,7 +7,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    // Keyset order history: per customer, all customers, and by status
+    @Index(name = "idx_orders_user_order_date_id", columnList = "user_id, order_date, id"),
+    @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"),
+    @Index(name = "idx_orders_status_order_date_id", columnList = "status, order_date, id")
+})
 public class Order {
     
     @Id
@@ -33,7 +38,10 @@ public class Order {
     private List<OrderItem> orderItems = new ArrayList<>();
     
     public enum OrderStatus {
-        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+        
+        // Closed states: once old enough, orders in these are moved to the archive
+        public boolean isFinal() { return this == DELIVERED || this == CANCELLED; }
     }
     
     // Constructors
@@ -0,0 +1,88 @@
+package com.example.ecomweb.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// An order accepted for asynchronous placement. The unique (user, key) pair makes a client
+// retrying with the same Idempotency-Key get this request back instead of a second order.
+@Entity
+@Table(name = "order_requests", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_order_requests_user_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+    @Index(name = "idx_order_requests_status_created_at", columnList = "status, created_at")
+})
+public class OrderRequest {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+    
+    private String shippingAddress;
+    
+    private String paymentMethod;
+    
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.QUEUED;
+    
+    @Column(name = "order_id")
+    private Long orderId;
+    
+    private String error;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    public enum Status {
+        QUEUED, COMPLETED, FAILED
+    }
+    
+    // Constructors
+    public OrderRequest() {}
+    
+    public OrderRequest(Long userId, String idempotencyKey, String shippingAddress, String paymentMethod) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.shippingAddress = shippingAddress;
+        this.paymentMethod = paymentMethod;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+    
+    public String getShippingAddress() { return shippingAddress; }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
+    
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
\ No newline at end of file
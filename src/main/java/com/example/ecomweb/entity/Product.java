@@ -10,7 +10,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    // Composite keys matching the keyset page orderings
+    @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_products_price_id", columnList = "price, id"),
+    @Index(name = "idx_products_category", columnList = "category"),
+    @Index(name = "idx_products_category_created_at_id", columnList = "category, created_at, id"),
+    @Index(name = "idx_products_category_price_id", columnList = "category, price, id")
+})
 public class Product {
     
     @Id
@@ -34,9 +41,9 @@ public class Product {
     private String imageUrl; // Keep for backward compatibility
     private String brand;
     
-    @Lob
-    @Column(name = "image_data", columnDefinition = "LONGBLOB")
-    private byte[] imageData;
+    // Content hash of the image in the image store; the bytes never live on this row
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
     
     @Column(name = "image_name")
     private String imageName;
@@ -44,6 +51,9 @@ public class Product {
     @Column(name = "image_type")
     private String imageType;
     
+    @Column(name = "image_size")
+    private Long imageSize;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
     
@@ -106,8 +116,8 @@ public class Product {
     public List<OrderItem> getOrderItems() { return orderItems; }
     public void setOrderItems(List<OrderItem> orderItems) { this.orderItems = orderItems; }
     
-    public byte[] getImageData() { return imageData; }
-    public void setImageData(byte[] imageData) { this.imageData = imageData; }
+    public String getImageHash() { return imageHash; }
+    public void setImageHash(String imageHash) { this.imageHash = imageHash; }
     
     public String getImageName() { return imageName; }
     public void setImageName(String imageName) { this.imageName = imageName; }
@@ -115,9 +125,12 @@ public class Product {
     public String getImageType() { return imageType; }
     public void setImageType(String imageType) { this.imageType = imageType; }
     
-    // Helper method to check if product has database image (will be included in JSON)
+    public Long getImageSize() { return imageSize; }
+    public void setImageSize(Long imageSize) { this.imageSize = imageSize; }
+    
+    // Helper method to check if product has a stored image (will be included in JSON)
     public boolean getHasImage() {
-        return imageData != null && imageData.length > 0;
+        return imageHash != null;
     }
     
     @PreUpdate
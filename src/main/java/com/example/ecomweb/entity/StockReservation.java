@@ -0,0 +1,51 @@
+package com.example.ecomweb.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Snapshot of an in-memory stock hold; only read back on startup
+@Entity
+@Table(name = "stock_reservations")
+public class StockReservation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    private Integer quantity;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // Constructors
+    public StockReservation() {}
+    
+    public StockReservation(Long userId, Long productId, Integer quantity, LocalDateTime expiresAt) {
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.entity.ArchivedOrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Long> {
+    List<ArchivedOrderItem> findByOrderIdOrderByIdAsc(Long orderId);
+}
\ No newline at end of file
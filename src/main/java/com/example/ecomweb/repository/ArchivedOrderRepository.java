@@ -0,0 +1,15 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.entity.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+    
+    // [status, orderCount, totalAmount] per status
+    @Query("SELECT o.status, COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM ArchivedOrder o GROUP BY o.status")
+    List<Object[]> sumByStatus();
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.entity.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    
+    // [productId, unitsSold] for every product that has been ordered
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
+}
\ No newline at end of file
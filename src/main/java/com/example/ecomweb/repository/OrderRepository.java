@@ -8,11 +8,9 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     List<Order> findByUser(User user);
-    List<Order> findByUserOrderByOrderDateDesc(User user);
-    List<Order> findByStatus(Order.OrderStatus status);
-    List<Order> findAllByOrderByOrderDateDesc();
+    long countByStatus(Order.OrderStatus status);
     
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = 'PENDING'")
     long countPendingOrders();
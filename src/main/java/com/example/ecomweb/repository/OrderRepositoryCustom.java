@@ -0,0 +1,12 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.dto.OrderCursor;
+import com.example.ecomweb.dto.OrderSummary;
+import com.example.ecomweb.entity.Order;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    // Newest first, keyset on (orderDate, id). A null userId lists every customer's orders with
+    // the customer attached; a null status does not filter. Archived orders are included.
+    List<OrderSummary> findSummaries(Long userId, Order.OrderStatus status, OrderCursor after, int limit);
+}
\ No newline at end of file
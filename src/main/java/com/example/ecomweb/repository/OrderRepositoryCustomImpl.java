@@ -0,0 +1,98 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.dto.OrderCursor;
+import com.example.ecomweb.dto.OrderSummary;
+import com.example.ecomweb.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    
+    private static final Comparator<OrderSummary> NEWEST_FIRST = Comparator
+            .comparing(OrderSummary::getOrderDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(OrderSummary::getId)
+            .reversed();
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Reads the same keyset page from the hot table and the archive and merges the two. The hot
+    // table goes first: an order archived in between then shows up twice rather than not at all,
+    // and the duplicate is dropped. The archive only holds closed orders, so it is skipped when
+    // filtering on any other status.
+    @Override
+    public List<OrderSummary> findSummaries(Long userId, Order.OrderStatus status, OrderCursor after, int limit) {
+        List<OrderSummary> hot = findSummaries(false, userId, status, after, limit);
+        if (status != null && !status.isFinal()) {
+            return hot;
+        }
+        List<OrderSummary> archived = findSummaries(true, userId, status, after, limit);
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        
+        List<OrderSummary> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(NEWEST_FIRST);
+        List<OrderSummary> page = new ArrayList<>(Math.min(limit, merged.size()));
+        Set<Long> seen = new HashSet<>();
+        for (OrderSummary summary : merged) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (seen.add(summary.getId())) {
+                page.add(summary);
+            }
+        }
+        return page;
+    }
+    
+    // The item count is a correlated subquery, evaluated only for the rows of the page
+    private List<OrderSummary> findSummaries(boolean archive, Long userId, Order.OrderStatus status,
+                                             OrderCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.ecomweb.dto.OrderSummary(")
+                .append("o.id, o.orderDate, o.status, o.totalAmount, ")
+                .append(archive
+                        ? "(SELECT COUNT(i) FROM ArchivedOrderItem i WHERE i.orderId = o.id)"
+                        : "(SELECT COUNT(i) FROM OrderItem i WHERE i.order = o)");
+        String from = archive ? "ArchivedOrder o" : "Order o";
+        if (userId != null) {
+            jpql.append(") FROM ").append(from)
+                .append(archive ? " WHERE o.userId = :userId" : " WHERE o.user.id = :userId");
+        } else {
+            // The archive keeps no foreign key to users; an order whose user is gone is still listed
+            jpql.append(archive ? ", o.userId" : ", u.id")
+                .append(", u.fullName, u.email, o.shippingAddress) FROM ").append(from)
+                .append(archive ? " LEFT JOIN User u ON u.id = o.userId" : " JOIN o.user u")
+                .append(" WHERE 1 = 1");
+        }
+        if (status != null) {
+            jpql.append(" AND o.status = :status");
+        }
+        if (after != null) {
+            jpql.append(" AND (o.orderDate < :lastOrderDate OR (o.orderDate = :lastOrderDate AND o.id < :lastId))");
+        }
+        jpql.append(" ORDER BY o.orderDate DESC, o.id DESC");
+        
+        TypedQuery<OrderSummary> query = entityManager.createQuery(jpql.toString(), OrderSummary.class);
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (after != null) {
+            query.setParameter("lastOrderDate", after.getOrderDate());
+            query.setParameter("lastId", after.getLastId());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.entity.OrderRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface OrderRequestRepository extends JpaRepository<OrderRequest, Long> {
+    Optional<OrderRequest> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+}
\ No newline at end of file
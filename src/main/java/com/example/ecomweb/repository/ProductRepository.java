@@ -8,7 +8,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     List<Product> findByCategory(String category);
     List<Product> findByNameContainingIgnoreCase(String name);
     List<Product> findByBrand(String brand);
@@ -23,4 +23,6 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<String> findAllCategories();
     
     long countByStockQuantityLessThanEqual(Integer stockQuantity);
+    
+    long countByImageHash(String imageHash);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.dto.ProductCursor;
+import com.example.ecomweb.dto.ProductSort;
+import com.example.ecomweb.entity.Product;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ProductRepositoryCustom {
+    // Keyset page: seeks past the cursor instead of using OFFSET, so cost is independent of depth
+    List<Product> findPage(String category, boolean availableOnly,
+                           ProductSort sort, ProductCursor after, int limit);
+    
+    // Forward-only cursor in id order; rows are fetched fetchSize at a time and detached once
+    // handed out, so neither the driver nor the persistence context grows with the catalog.
+    // Must be consumed inside a transaction and closed.
+    Stream<Product> streamAll(String category, int fetchSize);
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.dto.ProductCursor;
+import com.example.ecomweb.dto.ProductSort;
+import com.example.ecomweb.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.AvailableHints;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<Product> findPage(String category, boolean availableOnly,
+                                  ProductSort sort, ProductCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p FROM Product p WHERE 1 = 1");
+        List<String> conditions = new ArrayList<>();
+        
+        if (category != null) {
+            conditions.add("p.category = :category");
+        }
+        if (availableOnly) {
+            conditions.add("p.stockQuantity > 0");
+        }
+        if (after != null) {
+            conditions.add(switch (sort) {
+                case ID -> "p.id > :lastId";
+                case NEWEST -> "(p.createdAt < :lastCreatedAt OR (p.createdAt = :lastCreatedAt AND p.id < :lastId))";
+                case PRICE -> "(p.price > :lastPrice OR (p.price = :lastPrice AND p.id > :lastId))";
+                case RELEVANCE -> throw new IllegalArgumentException("Relevance sort is only available for search");
+            });
+        }
+        for (String condition : conditions) {
+            jpql.append(" AND ").append(condition);
+        }
+        
+        jpql.append(switch (sort) {
+            case ID -> " ORDER BY p.id ASC";
+            case NEWEST -> " ORDER BY p.createdAt DESC, p.id DESC";
+            case PRICE -> " ORDER BY p.price ASC, p.id ASC";
+            case RELEVANCE -> throw new IllegalArgumentException("Relevance sort is only available for search");
+        });
+        
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        if (after != null) {
+            query.setParameter("lastId", after.getLastId());
+            if (sort == ProductSort.NEWEST) {
+                query.setParameter("lastCreatedAt", after.getCreatedAt());
+            } else if (sort == ProductSort.PRICE) {
+                query.setParameter("lastPrice", after.getPrice());
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+    
+    @Override
+    public Stream<Product> streamAll(String category, int fetchSize) {
+        TypedQuery<Product> query = entityManager.createQuery(category != null
+                ? "SELECT p FROM Product p WHERE p.category = :category ORDER BY p.id"
+                : "SELECT p FROM Product p ORDER BY p.id", Product.class);
+        if (category != null) {
+            query.setParameter("category", category);
+        }
+        query.setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize);
+        query.setHint(AvailableHints.HINT_READ_ONLY, true);
+        return query.getResultStream().map(product -> {
+            entityManager.detach(product);
+            return product;
+        });
+    }
+}
\ No newline at end of file
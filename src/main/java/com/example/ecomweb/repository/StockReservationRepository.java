@@ -0,0 +1,12 @@
+package com.example.ecomweb.repository;
+
+import com.example.ecomweb.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+    List<StockReservation> findByExpiresAtAfter(LocalDateTime now);
+}
\ No newline at end of file
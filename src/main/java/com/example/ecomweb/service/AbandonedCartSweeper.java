@@ -0,0 +1,174 @@
+package com.example.ecomweb.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deletes carts nobody has changed for a while. Runs off-peak, walks users in id order in small
+// chunks with a pause in between, and each chunk is its own short transaction, so it never
+// holds locks or a connection for long. A cart counts as idle when its newest row is older
+// than the cutoff and it is not in active use in CartStore.
+@Component
+public class AbandonedCartSweeper {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private CartStore cartStore;
+    
+    @Value("${app.cart.sweeper.max-idle-days:30}")
+    private int maxIdleDays;
+    
+    @Value("${app.cart.sweeper.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${app.cart.sweeper.pause-ms:200}")
+    private long pauseMs;
+    
+    // Whatever is left over is picked up by the next run
+    @Value("${app.cart.sweeper.max-run-ms:600000}")
+    private long maxRunMs;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong cartsPurged = new AtomicLong();
+    private final AtomicLong rowsPurged = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile long lastRunRows;
+    private volatile LocalDateTime lastRunAt;
+    
+    @Scheduled(cron = "${app.cart.sweeper.cron:0 30 3 * * *}")
+    public void sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long rows = 0;
+        try {
+            stampLegacyRows(started);
+            
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxIdleDays);
+            long cutoffMillis = Timestamp.valueOf(cutoff).getTime();
+            long lastUserId = 0;
+            while (System.currentTimeMillis() - started < maxRunMs) {
+                List<Long> userIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT user_id FROM cart_items WHERE user_id > ? AND updated_at < ? ORDER BY user_id LIMIT ?",
+                    Long.class, lastUserId, Timestamp.valueOf(cutoff), chunkSize);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                lastUserId = userIds.get(userIds.size() - 1);
+                rows += purgeChunk(userIds, cutoff, cutoffMillis, started);
+                chunks.incrementAndGet();
+                pause();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Abandoned cart sweep failed: " + e.getMessage());
+        } finally {
+            long elapsed = System.currentTimeMillis() - started;
+            runs.incrementAndGet();
+            totalMillis.addAndGet(elapsed);
+            lastRunMillis = elapsed;
+            lastRunRows = rows;
+            lastRunAt = LocalDateTime.now();
+            running.set(false);
+            if (rows > 0) {
+                System.out.println("Purged " + rows + " abandoned cart rows in " + elapsed + " ms");
+            }
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("chunks", chunks.get());
+        stats.put("cartsPurged", cartsPurged.get());
+        stats.put("rowsPurged", rowsPurged.get());
+        stats.put("totalMillis", totalMillis.get());
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunRows", lastRunRows);
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("maxIdleDays", maxIdleDays);
+        return stats;
+    }
+    
+    // Rows written before updated_at existed start their idle clock now rather than being purged
+    private void stampLegacyRows(long started) {
+        while (System.currentTimeMillis() - started < maxRunMs) {
+            int stamped = jdbcTemplate.update(
+                "UPDATE cart_items SET updated_at = CURRENT_TIMESTAMP WHERE updated_at IS NULL LIMIT ?", chunkSize);
+            if (stamped < chunkSize) {
+                break;
+            }
+            pause();
+        }
+    }
+    
+    // Re-checks idleness per cart under row locks, so a cart written to since the candidates were
+    // read is left whole; carts in use in memory are skipped before the database is asked
+    private int purgeChunk(List<Long> candidates, LocalDateTime cutoff, long cutoffMillis, long sweepStarted) {
+        List<Long> userIds = new ArrayList<>(candidates.size());
+        for (Long userId : candidates) {
+            if (cartStore.isIdleSince(userId, cutoffMillis)) {
+                userIds.add(userId);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        
+        String placeholders = String.join(",", Collections.nCopies(userIds.size(), "?"));
+        List<Long> idle = new ArrayList<>();
+        Integer deleted = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Object> args = new ArrayList<>(userIds);
+            args.add(Timestamp.valueOf(cutoff));
+            idle.addAll(jdbcTemplate.queryForList(
+                "SELECT user_id FROM cart_items WHERE user_id IN (" + placeholders + ")"
+                    + " GROUP BY user_id HAVING MAX(updated_at) < ? FOR UPDATE",
+                Long.class, args.toArray()));
+            if (idle.isEmpty()) {
+                return 0;
+            }
+            return jdbcTemplate.update(
+                "DELETE FROM cart_items WHERE user_id IN (" + String.join(",", Collections.nCopies(idle.size(), "?")) + ")",
+                idle.toArray());
+        });
+        
+        int rows = deleted != null ? deleted : 0;
+        if (!idle.isEmpty()) {
+            cartStore.onRowsPurged(idle, sweepStarted);
+            cartsPurged.addAndGet(idle.size());
+            rowsPurged.addAndGet(rows);
+        }
+        return rows;
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Abandoned cart sweep interrupted");
+        }
+    }
+}
\ No newline at end of file
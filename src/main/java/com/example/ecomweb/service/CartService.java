@@ -1,93 +1,278 @@
 package com.example.ecomweb.service;
 
+import com.example.ecomweb.dto.CartOperation;
 import com.example.ecomweb.entity.CartItem;
 import com.example.ecomweb.entity.Product;
 import com.example.ecomweb.entity.User;
-import com.example.ecomweb.repository.CartItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+// Carts are served from CartStore; products come from the product cache, so a cart read
+// normally costs no query at all
 @Service
 public class CartService {
     
+    private static final int MAX_OPERATIONS = 200;
+    
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
     
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    // A loaded cart proves the user exists; otherwise one existence check
+    public boolean userExists(Long userId) {
+        return cartStore.isLoaded(userId) || userService.existsById(userId);
+    }
+    
     public CartItem addToCart(User user, Long productId, Integer quantity) {
+        return addToCart(user.getId(), productId, quantity);
+    }
+    
+    public CartItem addToCart(Long userId, Long productId, Integer quantity) {
         Optional<Product> productOpt = productService.getProductById(productId);
         if (!productOpt.isPresent()) {
             throw new RuntimeException("Product not found");
         }
         
         Product product = productOpt.get();
-        if (product.getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock");
+        return cartStore.withCart(userId, cart -> {
+            CartStore.Line existing = cart.getLine(productId);
+            
+            // The cart line holds its units until checkout; fails when other carts already hold them
+            int newQuantity = (existing != null ? existing.getQuantity() : 0) + quantity;
+            stockReservationService.reserve(userId, productId, newQuantity, product.getStockQuantity());
+            
+            return toCartItem(cart.setQuantity(productId, newQuantity, product.getPrice()), product);
+        });
+    }
+    
+    public List<CartItem> getCartItems(User user) {
+        return getCartItems(user.getId());
+    }
+    
+    public List<CartItem> getCartItems(Long userId) {
+        List<CartStore.Line> lines = cartStore.withCart(userId, cart -> snapshot(cart.getLines()));
+        List<Long> productIds = new ArrayList<>(lines.size());
+        for (CartStore.Line line : lines) {
+            productIds.add(line.getProductId());
+        }
+        return toCartItems(lines, productService.getProductsById(productIds));
+    }
+    
+    // Applies a whole batch of add/set/remove operations under one cart lock. Every operation is
+    // validated and every extra unit reserved before a single line changes, so the batch takes
+    // effect completely or not at all; the rows follow in the next write-behind flush.
+    public List<CartItem> applyOperations(Long userId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations per request");
         }
         
-        Optional<CartItem> existingItem = cartItemRepository.findByUserAndProduct(user, product);
+        return cartStore.withCart(userId, cart -> {
+            Map<Long, Integer> targets = new LinkedHashMap<>();
+            for (CartOperation operation : operations) {
+                Long productId = operation.getProductId();
+                if (productId == null && operation.getItemId() != null) {
+                    CartStore.Line line = cart.findLineById(operation.getItemId());
+                    if (line == null) {
+                        throw new RuntimeException("Cart item not found: " + operation.getItemId());
+                    }
+                    productId = line.getProductId();
+                }
+                if (productId == null) {
+                    throw new IllegalArgumentException("Each operation needs a productId or itemId");
+                }
+                
+                int current = targets.containsKey(productId) ? targets.get(productId) : quantityOf(cart, productId);
+                String op = operation.getOp() != null ? operation.getOp().toLowerCase() : "";
+                switch (op) {
+                    case "add" -> targets.put(productId, current + requireQuantity(operation, 1));
+                    case "set" -> targets.put(productId, requireQuantity(operation, 0));
+                    case "remove" -> targets.put(productId, 0);
+                    default -> throw new IllegalArgumentException("Unknown cart operation: " + operation.getOp());
+                }
+            }
+            
+            // One lookup for every product the cart will reference, cached ones from memory
+            Set<Long> productIds = new HashSet<>(targets.keySet());
+            for (CartStore.Line line : cart.getLines()) {
+                productIds.add(line.getProductId());
+            }
+            Map<Long, Product> products = productService.getProductsById(productIds);
+            for (Map.Entry<Long, Integer> target : targets.entrySet()) {
+                if (target.getValue() > 0 && !products.containsKey(target.getKey())) {
+                    throw new RuntimeException("Product not found: " + target.getKey());
+                }
+            }
+            
+            reserveIncreases(userId, cart, targets, products);
+            
+            for (Map.Entry<Long, Integer> target : targets.entrySet()) {
+                int previous = quantityOf(cart, target.getKey());
+                if (target.getValue() < previous) {
+                    if (target.getValue() == 0) {
+                        stockReservationService.release(userId, target.getKey());
+                    } else {
+                        Product product = products.get(target.getKey());
+                        stockReservationService.reserve(userId, target.getKey(), target.getValue(),
+                                product != null ? product.getStockQuantity() : target.getValue());
+                    }
+                }
+                Product product = products.get(target.getKey());
+                cart.setQuantity(target.getKey(), target.getValue(), product != null ? product.getPrice() : null);
+            }
+            return toCartItems(snapshot(cart.getLines()), products);
+        });
+    }
+    
+    public CartItem updateCartItem(Long cartItemId, Integer quantity) {
+        Long userId = cartStore.findOwner(cartItemId)
+                .orElseThrow(() -> new RuntimeException("Cart item not found"));
         
-        if (existingItem.isPresent()) {
-            CartItem cartItem = existingItem.get();
-            int newQuantity = cartItem.getQuantity() + quantity;
-            if (product.getStockQuantity() < newQuantity) {
-                throw new RuntimeException("Insufficient stock");
+        return cartStore.withCart(userId, cart -> {
+            CartStore.Line line = cart.findLineById(cartItemId);
+            if (line == null) {
+                throw new RuntimeException("Cart item not found");
             }
-            cartItem.setQuantity(newQuantity);
-            return cartItemRepository.save(cartItem);
-        } else {
-            CartItem newItem = new CartItem(user, product, quantity);
-            return cartItemRepository.save(newItem);
+            
+            Long productId = line.getProductId();
+            if (quantity <= 0) {
+                cart.setQuantity(productId, 0);
+                stockReservationService.release(userId, productId);
+                return null;
+            }
+            
+            Product product = productService.getProductById(productId)
+                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            stockReservationService.reserve(userId, productId, quantity, product.getStockQuantity());
+            return toCartItem(cart.setQuantity(productId, quantity, product.getPrice()), product);
+        });
+    }
+    
+    public void removeFromCart(Long cartItemId) {
+        Optional<Long> userId = cartStore.findOwner(cartItemId);
+        if (!userId.isPresent()) {
+            return;
         }
+        cartStore.withCart(userId.get(), cart -> {
+            CartStore.Line line = cart.findLineById(cartItemId);
+            if (line != null) {
+                cart.setQuantity(line.getProductId(), 0);
+                stockReservationService.release(userId.get(), line.getProductId());
+            }
+            return null;
+        });
     }
     
-    public List<CartItem> getCartItems(User user) {
-        return cartItemRepository.findByUser(user);
+    public void clearCart(User user) {
+        clearCart(user.getId());
     }
     
-    public CartItem updateCartItem(Long cartItemId, Integer quantity) {
-        Optional<CartItem> cartItemOpt = cartItemRepository.findById(cartItemId);
-        if (!cartItemOpt.isPresent()) {
-            throw new RuntimeException("Cart item not found");
-        }
-        
-        CartItem cartItem = cartItemOpt.get();
-        if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
+    // Written through immediately: at checkout the emptied cart must commit with the order
+    @Transactional
+    public void clearCart(Long userId) {
+        cartStore.withCart(userId, cart -> {
+            cart.clear();
             return null;
+        });
+        cartStore.flushNow(userId);
+        stockReservationService.releaseAll(userId);
+    }
+    
+    // Running totals kept by the cart itself; no product is read
+    public CartStore.Totals getCartTotals(Long userId) {
+        return cartStore.withCart(userId, CartStore.Cart::getTotals);
+    }
+    
+    public Map<String, Object> getCartStoreStats() {
+        return cartStore.getStats();
+    }
+    
+    // Growing holds can fail, so they are taken first; a failure hands back what was taken.
+    // Shrinking holds cannot fail and are left to the caller once everything has succeeded.
+    private void reserveIncreases(Long userId, CartStore.Cart cart, Map<Long, Integer> targets, Map<Long, Product> products) {
+        List<Long> raised = new ArrayList<>();
+        try {
+            for (Map.Entry<Long, Integer> target : targets.entrySet()) {
+                Long productId = target.getKey();
+                if (target.getValue() > quantityOf(cart, productId)) {
+                    Product product = products.get(productId);
+                    try {
+                        stockReservationService.reserve(userId, productId, target.getValue(), product.getStockQuantity());
+                    } catch (RuntimeException e) {
+                        throw new RuntimeException("Insufficient stock for " + product.getName());
+                    }
+                    raised.add(productId);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (Long productId : raised) {
+                int previous = quantityOf(cart, productId);
+                if (previous > 0) {
+                    stockReservationService.reserve(userId, productId, previous, products.get(productId).getStockQuantity());
+                } else {
+                    stockReservationService.release(userId, productId);
+                }
+            }
+            throw e;
         }
-        
-        if (cartItem.getProduct().getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock");
+    }
+    
+    private int requireQuantity(CartOperation operation, int minimum) {
+        if (operation.getQuantity() == null || operation.getQuantity() < minimum) {
+            throw new IllegalArgumentException("Operation '" + operation.getOp() + "' needs a quantity of at least " + minimum);
         }
-        
-        cartItem.setQuantity(quantity);
-        return cartItemRepository.save(cartItem);
+        return operation.getQuantity();
     }
     
-    public void removeFromCart(Long cartItemId) {
-        cartItemRepository.deleteById(cartItemId);
+    private int quantityOf(CartStore.Cart cart, Long productId) {
+        CartStore.Line line = cart.getLine(productId);
+        return line != null ? line.getQuantity() : 0;
     }
     
-    @Transactional
-    public void clearCart(User user) {
-        cartItemRepository.deleteByUser(user);
+    // Lines whose product has since been deleted are left out
+    private List<CartItem> toCartItems(List<CartStore.Line> lines, Map<Long, Product> products) {
+        List<CartItem> items = new ArrayList<>(lines.size());
+        for (CartStore.Line line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product != null) {
+                items.add(toCartItem(line, product));
+            }
+        }
+        return items;
     }
     
-    public BigDecimal getCartTotal(User user) {
-        List<CartItem> cartItems = getCartItems(user);
-        return cartItems.stream()
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Lines are mutable and guarded by the cart lock, so readers get their own copies
+    private List<CartStore.Line> snapshot(Iterable<CartStore.Line> lines) {
+        List<CartStore.Line> copies = new ArrayList<>();
+        for (CartStore.Line line : lines) {
+            copies.add(line.copy());
+        }
+        return copies;
     }
     
-    public long getCartItemCount(User user) {
-        return cartItemRepository.countByUser(user);
+    private CartItem toCartItem(CartStore.Line line, Product product) {
+        CartItem item = new CartItem();
+        item.setId(line.getId());
+        item.setProduct(product);
+        item.setQuantity(line.getQuantity());
+        return item;
     }
 }
\ No newline at end of file
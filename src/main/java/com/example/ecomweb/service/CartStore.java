@@ -0,0 +1,727 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.CartItem;
+import com.example.ecomweb.entity.Product;
+import com.example.ecomweb.repository.CartItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Active carts kept in memory, keyed by user. Reads never touch the database; mutations only
+// mark the cart dirty, and a background flush writes all pending changes as JDBC batches in one
+// transaction. Carts are loaded from cart_items on first use, so a restart or an eviction only
+// costs a reload. New lines carry a temporary negative id until their first flush.
+// Each cart also keeps a running subtotal, adjusted on every line change and on price changes
+// of the products it holds, so totals and badge counts are read without touching products.
+@Component
+public class CartStore implements ProductChangeListener {
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.cart.store.max-carts:10000}")
+    private int maxCarts;
+    
+    // Access-ordered, so iteration starts at the least recently used cart; guarded by 'this'
+    private final LinkedHashMap<Long, Cart> carts = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Cart> dirtyCarts = ConcurrentHashMap.newKeySet();
+    // Line ids (temporary and real) to their user, so lines can be addressed by id alone
+    private final Map<Long, Long> ownerByItemId = new ConcurrentHashMap<>();
+    // Product id to the loaded carts holding it, so a price change only visits those carts
+    private final Map<Long, Set<Cart>> cartsByProduct = new ConcurrentHashMap<>();
+    private final AtomicLong temporaryIds = new AtomicLong();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong repricedLines = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong discardedCarts = new AtomicLong();
+    
+    // lineCount and unitCount only cover lines whose product still exists
+    public record Totals(BigDecimal subtotal, int lineCount, long unitCount) {}
+    
+    public static final class Line {
+        private final long productId;
+        private long id;
+        // The id handed out before the first flush; clients may still use it afterwards
+        private long temporaryId;
+        private int quantity;
+        // The price the cart subtotal currently counts this line at; null once the product is gone
+        private BigDecimal unitPrice;
+        private int persistedQuantity;
+        private boolean persisted;
+        
+        private Line(long productId) {
+            this.productId = productId;
+        }
+        
+        public long getProductId() { return productId; }
+        public long getId() { return id; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        
+        Line copy() {
+            Line copy = new Line(productId);
+            copy.id = id;
+            copy.temporaryId = temporaryId;
+            copy.quantity = quantity;
+            copy.unitPrice = unitPrice;
+            copy.persistedQuantity = persistedQuantity;
+            copy.persisted = persisted;
+            return copy;
+        }
+        
+        boolean hasId(long lineId) {
+            return id == lineId || (temporaryId != 0 && temporaryId == lineId);
+        }
+    }
+    
+    public final class Cart {
+        private final long userId;
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        private final List<Long> deletedIds = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile boolean dirty;
+        private volatile boolean evicted;
+        // Every persisted row goes with one DELETE ... WHERE user_id on the next flush
+        private boolean cleared;
+        private volatile long lastAccess;
+        private BigDecimal subtotal = BigDecimal.ZERO;
+        private int pricedLines;
+        private long units;
+        
+        private Cart(long userId) {
+            this.userId = userId;
+        }
+        
+        public long getUserId() { return userId; }
+        
+        public Totals getTotals() {
+            return new Totals(subtotal, pricedLines, units);
+        }
+        
+        public Collection<Line> getLines() {
+            return lines.values();
+        }
+        
+        public Line getLine(Long productId) {
+            return lines.get(productId);
+        }
+        
+        public Line findLineById(Long lineId) {
+            for (Line line : lines.values()) {
+                if (line.hasId(lineId)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+        
+        // Sets the line's quantity, creating or removing the line as needed; an existing line
+        // keeps the price it is counted at
+        public Line setQuantity(Long productId, int quantity) {
+            return setQuantity(productId, quantity, null);
+        }
+        
+        public Line setQuantity(Long productId, int quantity, BigDecimal unitPrice) {
+            Line line = lines.get(productId);
+            if (quantity <= 0) {
+                if (line != null) {
+                    removeLine(line);
+                }
+                return null;
+            }
+            if (line == null) {
+                line = new Line(productId);
+                line.id = temporaryIds.decrementAndGet();
+                line.temporaryId = line.id;
+                lines.put(productId, line);
+                ownerByItemId.put(line.id, userId);
+                index(this, productId);
+            } else {
+                count(line, -1);
+            }
+            if (unitPrice != null) {
+                line.unitPrice = unitPrice;
+            }
+            line.quantity = quantity;
+            count(line, 1);
+            markDirty();
+            return line;
+        }
+        
+        public void clear() {
+            boolean hasRows = !deletedIds.isEmpty();
+            for (Line line : new ArrayList<>(lines.values())) {
+                hasRows |= line.persisted;
+                removeLine(line);
+            }
+            if (hasRows) {
+                deletedIds.clear();
+                cleared = true;
+            }
+        }
+        
+        // The rows were deleted underneath the cart; the next flush writes every line again.
+        // Lines get new ids then, but stay addressable by the ones clients already have.
+        private void requeue() {
+            deletedIds.clear();
+            cleared = false;
+            for (Line line : lines.values()) {
+                if (line.persisted) {
+                    if (line.temporaryId != 0) {
+                        ownerByItemId.remove(line.temporaryId, userId);
+                    }
+                    line.temporaryId = line.id;
+                    line.persisted = false;
+                }
+            }
+            markDirty();
+        }
+        
+        private void removeLine(Line line) {
+            count(line, -1);
+            lines.remove(line.productId);
+            unindex(this, line.productId);
+            ownerByItemId.remove(line.id);
+            if (line.temporaryId != 0) {
+                ownerByItemId.remove(line.temporaryId);
+            }
+            if (line.persisted) {
+                deletedIds.add(line.id);
+            }
+            markDirty();
+        }
+        
+        // Moves the line to a new price, adjusting the subtotal by the difference
+        private boolean reprice(Long productId, BigDecimal unitPrice) {
+            Line line = lines.get(productId);
+            if (line == null || samePrice(line.unitPrice, unitPrice)) {
+                return false;
+            }
+            count(line, -1);
+            line.unitPrice = unitPrice;
+            count(line, 1);
+            return true;
+        }
+        
+        private void count(Line line, int sign) {
+            if (line.unitPrice == null) {
+                return;
+            }
+            BigDecimal amount = line.unitPrice.multiply(BigDecimal.valueOf(line.quantity));
+            subtotal = sign > 0 ? subtotal.add(amount) : subtotal.subtract(amount);
+            pricedLines += sign;
+            units += (long) sign * line.quantity;
+        }
+        
+        private void markDirty() {
+            dirty = true;
+            dirtyCarts.add(this);
+        }
+    }
+    
+    // Runs the action with the user's cart locked, loading the cart first if needed
+    public <T> T withCart(Long userId, Function<Cart, T> action) {
+        while (true) {
+            Cart cart = getOrLoad(userId);
+            cart.lock.lock();
+            try {
+                if (cart.evicted) {
+                    // Evicted between lookup and lock; it was clean, so a reload is exact
+                    continue;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return action.apply(cart);
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    // The owner of a line id, from memory or from the table for carts not loaded yet
+    public Optional<Long> findOwner(Long lineId) {
+        Long owner = ownerByItemId.get(lineId);
+        if (owner != null) {
+            return Optional.of(owner);
+        }
+        if (lineId < 0) {
+            return Optional.empty();
+        }
+        return cartItemRepository.findById(lineId).map(item -> item.getUser().getId());
+    }
+    
+    public synchronized boolean isLoaded(Long userId) {
+        return carts.containsKey(userId);
+    }
+    
+    // True unless the user's cart is in memory and has been used since the given time
+    public boolean isIdleSince(Long userId, long sinceMillis) {
+        Cart cart;
+        synchronized (this) {
+            cart = carts.get(userId);
+        }
+        return cart == null || (!cart.dirty && cart.lastAccess < sinceMillis);
+    }
+    
+    // Reconciles memory after the sweeper deleted these users' rows: untouched carts are dropped,
+    // while a cart used since 'sinceMillis' (a race with the sweep) has its lines written again
+    public void onRowsPurged(Collection<Long> userIds, long sinceMillis) {
+        for (Long userId : userIds) {
+            Cart cart;
+            synchronized (this) {
+                cart = carts.get(userId);
+            }
+            if (cart == null) {
+                continue;
+            }
+            cart.lock.lock();
+            try {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (cart.dirty || cart.lastAccess >= sinceMillis) {
+                    cart.requeue();
+                    continue;
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+            evict(cart);
+        }
+    }
+    
+    // Writes the cart's pending changes now, joining the caller's transaction if there is one.
+    // Should that transaction roll back, the cart is dropped from memory and reloaded later.
+    public void flushNow(Long userId) {
+        withCart(userId, cart -> {
+            if (cart.dirty) {
+                flush(List.of(cart));
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            evict(cart);
+                        }
+                    }
+                });
+            }
+            return null;
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${app.cart.store.flush-interval-ms:1000}")
+    public void flushDirtyCarts() {
+        if (dirtyCarts.isEmpty()) {
+            return;
+        }
+        List<Cart> batch = new ArrayList<>(dirtyCarts);
+        // Other threads only ever hold one cart lock, so taking several in a fixed order is safe
+        batch.sort(Comparator.comparingLong(Cart::getUserId));
+        List<Cart> locked = new ArrayList<>(batch.size());
+        List<Cart> pending = new ArrayList<>(batch.size());
+        try {
+            for (Cart cart : batch) {
+                cart.lock.lock();
+                locked.add(cart);
+                // A cart dropped after a rolled-back checkout no longer reflects the rows
+                if (!cart.evicted && cart.dirty) {
+                    pending.add(cart);
+                }
+            }
+            if (!pending.isEmpty()) {
+                try {
+                    flush(pending);
+                } catch (DataIntegrityViolationException e) {
+                    // One cart with a row the schema rejects must not hold back every other cart
+                    for (Cart cart : pending) {
+                        flushAlone(cart);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush " + batch.size() + " carts: " + e.getMessage());
+        } finally {
+            locked.forEach(cart -> cart.lock.unlock());
+        }
+        evictExcess();
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushDirtyCarts();
+    }
+    
+    @Override
+    public void rebuild(List<Product> products) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (Product product : products) {
+            prices.put(product.getId(), product.getPrice());
+        }
+        List<Cart> loaded;
+        synchronized (this) {
+            loaded = new ArrayList<>(carts.values());
+        }
+        for (Cart cart : loaded) {
+            cart.lock.lock();
+            try {
+                for (Line line : cart.lines.values()) {
+                    if (cart.reprice(line.productId, prices.get(line.productId))) {
+                        repricedLines.incrementAndGet();
+                    }
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    // Stock-only saves leave the price alone, so most of these find nothing to change
+    @Override
+    public void onProductSaved(Product product) {
+        repriceCarts(product.getId(), product.getPrice());
+    }
+    
+    // The line goes: it can never be ordered, and an unflushed one would fail its foreign key.
+    // A persisted line would have blocked the delete, so dropping it leaves nothing to undo.
+    @Override
+    public void onProductDeleted(Long productId) {
+        Set<Cart> holders = cartsByProduct.get(productId);
+        if (holders == null) {
+            return;
+        }
+        for (Cart cart : holders) {
+            cart.lock.lock();
+            try {
+                Line line = cart.lines.get(productId);
+                if (!cart.evicted && line != null) {
+                    cart.removeLine(line);
+                    droppedLines.incrementAndGet();
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("carts", carts.size());
+        }
+        stats.put("maxCarts", maxCarts);
+        stats.put("dirtyCarts", dirtyCarts.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("evictions", evictions.get());
+        stats.put("flushes", flushes.get());
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("repricedLines", repricedLines.get());
+        stats.put("droppedLines", droppedLines.get());
+        stats.put("discardedCarts", discardedCarts.get());
+        return stats;
+    }
+    
+    private Cart getOrLoad(Long userId) {
+        synchronized (this) {
+            Cart cart = carts.get(userId);
+            if (cart != null) {
+                hits.incrementAndGet();
+                return cart;
+            }
+        }
+        
+        // Load outside the store lock; if another thread won the race its copy is kept
+        Cart loaded = new Cart(userId);
+        for (CartItem item : cartItemRepository.findByUserId(userId)) {
+            Long productId = item.getProduct().getId();
+            if (loaded.lines.containsKey(productId)) {
+                // Duplicate row for the same product from before the store existed
+                loaded.deletedIds.add(item.getId());
+                loaded.dirty = true;
+                continue;
+            }
+            Line line = new Line(productId);
+            line.id = item.getId();
+            line.quantity = item.getQuantity();
+            line.unitPrice = item.getProduct().getPrice();
+            line.persistedQuantity = item.getQuantity();
+            line.persisted = true;
+            loaded.lines.put(productId, line);
+            loaded.count(line, 1);
+        }
+        loads.incrementAndGet();
+        
+        synchronized (this) {
+            Cart existing = carts.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            carts.put(userId, loaded);
+            for (Line line : loaded.lines.values()) {
+                ownerByItemId.put(line.id, userId);
+                index(loaded, line.productId);
+            }
+            if (loaded.dirty) {
+                dirtyCarts.add(loaded);
+            }
+        }
+        evictExcess();
+        return loaded;
+    }
+    
+    // Caller holds the cart's lock. Lines whose product vanished before they were first written
+    // are dropped and the flush retried; a cart still rejected after that (e.g. its user was
+    // deleted) is discarded, falling back to whatever rows it has, rather than retried forever.
+    private void flushAlone(Cart cart) {
+        DataIntegrityViolationException failure;
+        try {
+            flush(List.of(cart));
+            return;
+        } catch (DataIntegrityViolationException e) {
+            failure = e;
+        }
+        if (dropOrphanLines(cart) > 0) {
+            try {
+                flush(List.of(cart));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                failure = e;
+            }
+        }
+        System.err.println("Discarding unwritable cart of user " + cart.userId + ": " + failure.getMessage());
+        discardedCarts.incrementAndGet();
+        evict(cart);
+    }
+    
+    private int dropOrphanLines(Cart cart) {
+        List<Line> unwritten = new ArrayList<>();
+        for (Line line : cart.lines.values()) {
+            if (!line.persisted) {
+                unwritten.add(line);
+            }
+        }
+        if (unwritten.isEmpty()) {
+            return 0;
+        }
+        List<Object> productIds = new ArrayList<>(unwritten.size());
+        unwritten.forEach(line -> productIds.add(line.productId));
+        Set<Long> existing = Set.copyOf(jdbcTemplate.queryForList(
+            "SELECT id FROM products WHERE id IN (" + String.join(",", Collections.nCopies(productIds.size(), "?")) + ")",
+            Long.class, productIds.toArray()));
+        int dropped = 0;
+        for (Line line : unwritten) {
+            if (!existing.contains(line.productId)) {
+                cart.removeLine(line);
+                dropped++;
+            }
+        }
+        droppedLines.addAndGet(dropped);
+        return dropped;
+    }
+    
+    // Drops least recently used clean carts; dirty ones stay until flushed
+    private void evictExcess() {
+        List<Cart> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Cart> iterator = carts.values().iterator();
+            while (carts.size() > maxCarts && iterator.hasNext()) {
+                Cart cart = iterator.next();
+                if (cart.dirty || !cart.lock.tryLock()) {
+                    continue;
+                }
+                try {
+                    if (!cart.dirty) {
+                        cart.evicted = true;
+                        iterator.remove();
+                        evicted.add(cart);
+                    }
+                } finally {
+                    cart.lock.unlock();
+                }
+            }
+        }
+        evicted.forEach(this::forget);
+        evictions.addAndGet(evicted.size());
+    }
+    
+    private void evict(Cart cart) {
+        cart.lock.lock();
+        try {
+            cart.evicted = true;
+            dirtyCarts.remove(cart);
+            synchronized (this) {
+                carts.remove(cart.userId, cart);
+            }
+        } finally {
+            cart.lock.unlock();
+        }
+        forget(cart);
+        evictions.incrementAndGet();
+    }
+    
+    private void forget(Cart cart) {
+        for (Line line : cart.lines.values()) {
+            unindex(cart, line.productId);
+            ownerByItemId.remove(line.id, cart.userId);
+            if (line.temporaryId != 0) {
+                ownerByItemId.remove(line.temporaryId, cart.userId);
+            }
+        }
+    }
+    
+    // Called after commit, never under a cart lock, so taking each cart's lock in turn is safe
+    private void repriceCarts(Long productId, BigDecimal unitPrice) {
+        Set<Cart> holders = cartsByProduct.get(productId);
+        if (holders == null) {
+            return;
+        }
+        for (Cart cart : holders) {
+            cart.lock.lock();
+            try {
+                if (!cart.evicted && cart.reprice(productId, unitPrice)) {
+                    repricedLines.incrementAndGet();
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+    
+    private void index(Cart cart, Long productId) {
+        // Added inside compute so a concurrent unindex cannot drop the set in between
+        cartsByProduct.compute(productId, (id, holders) -> {
+            Set<Cart> set = holders != null ? holders : ConcurrentHashMap.<Cart>newKeySet();
+            set.add(cart);
+            return set;
+        });
+    }
+    
+    private void unindex(Cart cart, Long productId) {
+        cartsByProduct.computeIfPresent(productId, (id, holders) -> {
+            holders.remove(cart);
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+    
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+    
+    // Callers hold the locks of all carts; everything pending in them goes out in one transaction
+    private void flush(List<Cart> batch) {
+        List<Object[]> clears = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Line> inserts = new ArrayList<>();
+        List<Long> insertOwners = new ArrayList<>();
+        for (Cart cart : batch) {
+            if (cart.cleared) {
+                clears.add(new Object[] { cart.userId });
+            }
+            for (Long id : cart.deletedIds) {
+                deletes.add(new Object[] { id });
+            }
+            for (Line line : cart.lines.values()) {
+                if (!line.persisted) {
+                    inserts.add(line);
+                    insertOwners.add(cart.userId);
+                } else if (line.quantity != line.persistedQuantity) {
+                    updates.add(new Object[] { line.quantity, line.id });
+                }
+            }
+        }
+        
+        long[] generatedIds = new long[inserts.size()];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!clears.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE user_id = ?", clears);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ?", deletes);
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE cart_items SET quantity = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?", updates);
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "INSERT INTO cart_items (user_id, product_id, quantity, updated_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP)",
+                            Statement.RETURN_GENERATED_KEYS)) {
+                        for (int i = 0; i < inserts.size(); i++) {
+                            statement.setLong(1, insertOwners.get(i));
+                            statement.setLong(2, inserts.get(i).productId);
+                            statement.setInt(3, inserts.get(i).quantity);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            for (int i = 0; i < generatedIds.length && keys.next(); i++) {
+                                generatedIds[i] = keys.getLong(1);
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        });
+        
+        // Written; bring the in-memory state in line with the rows
+        for (int i = 0; i < inserts.size(); i++) {
+            Line line = inserts.get(i);
+            line.id = generatedIds[i];
+            line.persisted = true;
+            ownerByItemId.put(line.id, insertOwners.get(i));
+        }
+        for (Cart cart : batch) {
+            cart.cleared = false;
+            cart.deletedIds.clear();
+            for (Line line : cart.lines.values()) {
+                line.persistedQuantity = line.quantity;
+            }
+            cart.dirty = false;
+            dirtyCarts.remove(cart);
+        }
+        flushes.incrementAndGet();
+        rowsWritten.addAndGet(clears.size() + deletes.size() + updates.size() + inserts.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.example.ecomweb.service;
+
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic version of the whole catalog, used as the validator for list responses.
+// Seeded from the boot time so a restart never reissues an ETag seen before.
+@Component
+public class CatalogVersion {
+    
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis() << 20);
+    private volatile long lastModified = System.currentTimeMillis();
+    
+    public void bump() {
+        version.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+    
+    public String getETag() {
+        return "\"c" + Long.toHexString(version.get()) + "\"";
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.example.ecomweb.service;
+
+import org.springframework.stereotype.Component;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongToIntFunction;
+
+// Stock of promoted products split across independent sub-counters. Checkouts take units from
+// a random shard with a CAS, so they no longer queue on one products row; units sold are
+// accumulated and folded back into products.stock_quantity by the periodic rebalance.
+// Units sold since the last fold (at most one rebalance interval's worth) exist only here until
+// then: a crash, unlike a shutdown, loses them, and after restart the row still counts them as
+// in stock, so those units can be sold again.
+@Component
+public class HotStockCounters {
+    
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    
+    public enum TakeResult { TAKEN, INSUFFICIENT, NOT_HOT }
+    
+    private static final class Counter {
+        final AtomicIntegerArray shards;
+        // Units taken from the shards but not yet subtracted from the products row
+        final AtomicLong pending = new AtomicLong();
+        final AtomicLong taken = new AtomicLong();
+        final AtomicLong spills = new AtomicLong();
+        // Takes share the read side; the rebalance needs the shards to itself
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Set under the write lock when the product leaves hot mode; late takes must not land here
+        boolean retired;
+        
+        Counter(int shardCount) {
+            shards = new AtomicIntegerArray(shardCount);
+        }
+        
+        void spread(int total) {
+            int count = shards.length();
+            int base = Math.max(total, 0) / count;
+            int extra = Math.max(total, 0) % count;
+            for (int i = 0; i < count; i++) {
+                shards.set(i, base + (i < extra ? 1 : 0));
+            }
+        }
+        
+        int sum() {
+            int total = 0;
+            for (int i = 0; i < shards.length(); i++) {
+                total += shards.get(i);
+            }
+            return total;
+        }
+    }
+    
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+    
+    public void enable(Long productId, int shardCount, int stockQuantity) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        Counter counter = new Counter(shardCount);
+        counter.spread(stockQuantity);
+        if (counters.putIfAbsent(productId, counter) != null) {
+            throw new IllegalArgumentException("Product is already in hot stock mode");
+        }
+    }
+    
+    // Detaches the counter; returns the units still to be subtracted from the row, or 0 if not hot
+    public long disable(Long productId) {
+        Counter counter = counters.remove(productId);
+        if (counter == null) {
+            return 0;
+        }
+        counter.lock.writeLock().lock();
+        try {
+            counter.retired = true;
+            return counter.pending.getAndSet(0);
+        } finally {
+            counter.lock.writeLock().unlock();
+        }
+    }
+    
+    // Starts at a random shard and walks to its neighbours until one can cover the quantity.
+    // Only when no single shard can is the quantity gathered from several.
+    public TakeResult tryTake(Long productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter == null) {
+            return TakeResult.NOT_HOT;
+        }
+        counter.lock.readLock().lock();
+        try {
+            if (counter.retired) {
+                return TakeResult.NOT_HOT;
+            }
+            int count = counter.shards.length();
+            int start = ThreadLocalRandom.current().nextInt(count);
+            for (int i = 0; i < count; i++) {
+                int shard = (start + i) % count;
+                if (takeFrom(counter.shards, shard, quantity)) {
+                    if (i > 0) {
+                        counter.spills.incrementAndGet();
+                    }
+                    counter.pending.addAndGet(quantity);
+                    counter.taken.addAndGet(quantity);
+                    return TakeResult.TAKEN;
+                }
+            }
+        } finally {
+            counter.lock.readLock().unlock();
+        }
+        return takeAcrossShards(counter, quantity);
+    }
+    
+    // Compensation for a checkout that took units and then rolled back. Returns false when the
+    // product has left hot mode meanwhile: its pending units went to the row, so the caller
+    // must credit the row instead.
+    public boolean giveBack(Long productId, int quantity) {
+        Counter counter = counters.get(productId);
+        if (counter == null) {
+            return false;
+        }
+        counter.lock.readLock().lock();
+        try {
+            if (counter.retired) {
+                return false;
+            }
+            counter.shards.addAndGet(ThreadLocalRandom.current().nextInt(counter.shards.length()), quantity);
+            counter.pending.addAndGet(-quantity);
+            counter.taken.addAndGet(-quantity);
+            return true;
+        } finally {
+            counter.lock.readLock().unlock();
+        }
+    }
+    
+    // With the shards frozen, hands the units sold since the last run to 'fold' (which writes
+    // them to the row and returns the row's stock afterwards) and re-spreads that stock evenly.
+    // Restocks made directly on the row are picked up the same way. 'fold' must be atomic: if it
+    // throws, the units stay pending and are handed over again on the next run.
+    public void rebalance(Long productId, LongToIntFunction fold) {
+        Counter counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        counter.lock.writeLock().lock();
+        try {
+            if (counter.retired) {
+                return;
+            }
+            long consumed = counter.pending.get();
+            int stockQuantity = fold.applyAsInt(consumed);
+            counter.pending.addAndGet(-consumed);
+            counter.spread(stockQuantity);
+        } finally {
+            counter.lock.writeLock().unlock();
+        }
+    }
+    
+    public Iterable<Long> getHotProductIds() {
+        return counters.keySet();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            Map<String, Object> product = new HashMap<>();
+            product.put("shards", counter.shards.length());
+            product.put("available", counter.sum());
+            product.put("pending", counter.pending.get());
+            product.put("taken", counter.taken.get());
+            product.put("spills", counter.spills.get());
+            stats.put(String.valueOf(entry.getKey()), product);
+        }
+        return stats;
+    }
+    
+    private TakeResult takeAcrossShards(Counter counter, int quantity) {
+        counter.lock.writeLock().lock();
+        try {
+            if (counter.retired) {
+                return TakeResult.NOT_HOT;
+            }
+            if (counter.sum() < quantity) {
+                return TakeResult.INSUFFICIENT;
+            }
+            int remaining = quantity;
+            for (int i = 0; i < counter.shards.length() && remaining > 0; i++) {
+                int take = Math.min(counter.shards.get(i), remaining);
+                counter.shards.addAndGet(i, -take);
+                remaining -= take;
+            }
+            counter.spills.incrementAndGet();
+            counter.pending.addAndGet(quantity);
+            counter.taken.addAndGet(quantity);
+            return TakeResult.TAKEN;
+        } finally {
+            counter.lock.writeLock().unlock();
+        }
+    }
+    
+    private boolean takeFrom(AtomicIntegerArray shards, int shard, int quantity) {
+        IntUnaryOperator take = available -> available >= quantity ? available - quantity : available;
+        int before = shards.getAndUpdate(shard, take);
+        return before >= quantity;
+    }
+}
\ No newline at end of file
@@ -1,13 +1,21 @@
 package com.example.ecomweb.service;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Service
@@ -16,6 +24,30 @@ public class ImageService {
     @Value("${app.upload.dir:uploads/images}")
     private String uploadDir;
     
+    @Value("${app.image.store.dir:uploads/store}")
+    private String storeDir;
+    
+    @Value("${app.image.max-bytes:5242880}")
+    private long maxImageBytes;
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    public static class StoredImage {
+        private final String hash;
+        private final long size;
+        private final String contentType;
+        
+        public StoredImage(String hash, long size, String contentType) {
+            this.hash = hash;
+            this.size = size;
+            this.contentType = contentType;
+        }
+        
+        public String getHash() { return hash; }
+        public long getSize() { return size; }
+        public String getContentType() { return contentType; }
+    }
+    
     public String saveImage(MultipartFile file) throws IOException {
         // Create upload directory if it doesn't exist
         File directory = new File(uploadDir);
@@ -28,17 +60,18 @@ public class ImageService {
         String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
         String filename = UUID.randomUUID().toString() + extension;
         
-        // Save file
-        Path filePath = Paths.get(uploadDir, filename);
-        Files.copy(file.getInputStream(), filePath);
+        // Save file; the container moves its spooled part instead of copying through memory
+        Path filePath = Paths.get(uploadDir, filename).toAbsolutePath();
+        file.transferTo(filePath);
         
         return filename;
     }
     
-    public byte[] getImage(String filename) throws IOException {
+    // File-backed resource; callers stream it instead of copying the file onto the heap
+    public Resource getImage(String filename) {
         Path filePath = Paths.get(uploadDir, filename);
         if (Files.exists(filePath)) {
-            return Files.readAllBytes(filePath);
+            return new FileSystemResource(filePath);
         }
         return null;
     }
@@ -51,4 +84,126 @@ public class ImageService {
             return false;
         }
     }
+    
+    // Content-addressed store: images are keyed by the SHA-256 of their bytes, so
+    // identical uploads share one file and a hash never points at changed content.
+    public String storeImage(byte[] data) throws IOException {
+        String hash = sha256(data);
+        Path target = resolveStoredImage(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return hash;
+    }
+    
+    // Streams an upload into the store through one fixed buffer: the hash, the size limit and
+    // the format check are all applied while copying, so no upload is ever held in memory whole.
+    public StoredImage storeImage(InputStream in) throws IOException {
+        Path tempDir = Paths.get(storeDir, "tmp");
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "upload", ".tmp");
+        try {
+            MessageDigest digest = newSha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            String contentType = null;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    if (contentType == null) {
+                        // The first full buffer is far larger than any magic number we look for
+                        contentType = sniffContentType(buffer, read);
+                        if (contentType == null) {
+                            throw new IllegalArgumentException("Only JPEG, PNG, GIF or WebP images are allowed");
+                        }
+                    }
+                    size += read;
+                    if (size > maxImageBytes) {
+                        throw new IllegalArgumentException("File size must be less than " + (maxImageBytes / (1024 * 1024)) + "MB");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("Image file is empty");
+            }
+            
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = resolveStoredImage(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredImage(hash, size, contentType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    public boolean deleteStoredImage(String hash) {
+        try {
+            return Files.deleteIfExists(resolveStoredImage(hash));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    public Path resolveStoredImage(String hash) {
+        if (hash == null || !hash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid image hash");
+        }
+        // Fan out by the first two hex digits to keep directories small
+        return Paths.get(storeDir, hash.substring(0, 2), hash);
+    }
+    
+    private String sha256(byte[] data) {
+        return HexFormat.of().formatHex(newSha256().digest(data));
+    }
+    
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    // Trusts the file's magic number rather than the client-supplied Content-Type
+    private String sniffContentType(byte[] head, int length) {
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+    
+    private boolean startsWith(byte[] head, int length, int offset, int... magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
\ No newline at end of file
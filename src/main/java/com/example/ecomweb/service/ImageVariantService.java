@@ -0,0 +1,228 @@
+package com.example.ecomweb.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Produces resized, re-encoded JPEG variants of stored images on a small bounded worker pool.
+// Variants are keyed by the source content hash, so identical images are only processed once.
+@Service
+public class ImageVariantService {
+    
+    public enum Size {
+        THUMB(150), MEDIUM(400), LARGE(800);
+        
+        private final int maxDimension;
+        
+        Size(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+        
+        public static Size fromParam(String value) {
+            try {
+                return Size.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid image size: " + value);
+            }
+        }
+    }
+    
+    @Autowired
+    private ImageService imageService;
+    
+    @Value("${app.image.variants.dir:uploads/variants}")
+    private String variantsDir;
+    
+    @Value("${app.image.variants.threads:2}")
+    private int workerThreads;
+    
+    @Value("${app.image.variants.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${app.image.variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+    
+    private ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Sources ImageIO cannot decode (e.g. WebP); requests for them fall back to the original
+    // without queueing a job that would fail the same way again. Cleared on restart.
+    private final Set<String> undecodable = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    public void startWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void stopWorkers() {
+        executor.shutdownNow();
+    }
+    
+    // Never blocks the caller: when the queue is full the job is dropped and retried on the next request.
+    // Hashes already queued or known to be undecodable are skipped.
+    public void generateVariantsAsync(String hash) {
+        if (hash == null || undecodable.contains(hash) || !inFlight.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(hash);
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            System.out.println("Image variant queue full, deferring " + hash);
+        }
+    }
+    
+    public Path getVariant(String hash, Size size) {
+        Path variant = resolveVariant(hash, size);
+        return Files.exists(variant) ? variant : null;
+    }
+    
+    public void deleteVariants(String hash) {
+        undecodable.remove(hash);
+        for (Size size : Size.values()) {
+            try {
+                Files.deleteIfExists(resolveVariant(hash, size));
+            } catch (IOException e) {
+                System.err.println("Failed to delete image variant " + hash + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private void generateVariants(String hash) {
+        Path source = imageService.resolveStoredImage(hash);
+        BufferedImage original;
+        try {
+            original = decode(source, Size.LARGE.maxDimension);
+        } catch (IOException | RuntimeException e) {
+            undecodable.add(hash);
+            System.err.println("Failed to decode image " + hash + ": " + e.getMessage());
+            return;
+        }
+        if (original == null) {
+            undecodable.add(hash);
+            System.err.println("Unsupported image format, no variants for " + hash);
+            return;
+        }
+        // Write failures (e.g. a full disk) are not remembered, so the next request retries
+        try {
+            for (Size size : Size.values()) {
+                Path target = resolveVariant(hash, size);
+                if (!Files.exists(target)) {
+                    writeJpeg(resize(original, size.maxDimension), target);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to generate image variants for " + hash + ": " + e.getMessage());
+        }
+    }
+    
+    // Decode with source subsampling so a huge upload never materializes at full resolution
+    private BufferedImage decode(Path source, int largestTarget) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Keep at least twice the target resolution so the final downscale stays sharp
+                int subsampling = Math.max(1, longestSide / (largestTarget * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    private BufferedImage resize(BufferedImage source, int maxDimension) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        
+        // JPEG has no alpha channel, so flatten transparency onto white
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+    
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private Path resolveVariant(String hash, Size size) {
+        // Validates the hash the same way the original store does
+        imageService.resolveStoredImage(hash);
+        return Paths.get(variantsDir, hash.substring(0, 2), hash + "-" + size.name().toLowerCase() + ".jpg");
+    }
+}
\ No newline at end of file
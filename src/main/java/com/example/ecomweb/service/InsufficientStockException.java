@@ -0,0 +1,20 @@
+package com.example.ecomweb.service;
+
+import java.util.List;
+
+// Thrown when a conditional stock decrement matched no row: the product is gone or has too little stock
+public class InsufficientStockException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final List<Long> productIds;
+    
+    public InsufficientStockException(List<Long> productIds) {
+        super("Insufficient stock for product(s) " + productIds);
+        this.productIds = productIds;
+    }
+    
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
\ No newline at end of file
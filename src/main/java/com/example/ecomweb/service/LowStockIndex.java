@@ -0,0 +1,234 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stock levels of every product, kept in step with product writes. A Fenwick tree over stock
+// values answers "how many at or below N" in O(log n); an ordered set of (stock, id) serves
+// the lowest-stock listing. Crossing the alert threshold is pushed to SSE subscribers.
+@Component
+public class LowStockIndex implements ProductChangeListener {
+    
+    @Value("${app.inventory.low-stock.threshold:5}")
+    private int alertThreshold;
+    
+    // Stock values above this share one overflow bucket, so thresholds are capped here
+    @Value("${app.inventory.low-stock.max-threshold:1000}")
+    private int maxThreshold;
+    
+    @Value("${app.inventory.low-stock.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+    
+    @Value("${app.inventory.low-stock.alert-queue-capacity:1000}")
+    private int alertQueueCapacity;
+    
+    private final Map<Long, StockEntry> entries = new HashMap<>();
+    private final TreeSet<StockEntry> byStock = new TreeSet<>(
+        Comparator.comparingInt(StockEntry::stock).thenComparingLong(StockEntry::productId));
+    private long[] fenwick;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    // Alerts are raised in after-commit callbacks on checkout threads; one sender thread keeps a
+    // slow or dead client from stalling them and delivers events in the order they were raised
+    private ThreadPoolExecutor sender;
+    
+    private record StockEntry(long productId, String name, int stock) {}
+    
+    @PostConstruct
+    public void init() {
+        fenwick = new long[maxThreshold + 3];
+        sender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(alertQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "low-stock-alerts");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+    
+    @Override
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            byStock.clear();
+            fenwick = new long[maxThreshold + 3];
+            for (Product product : products) {
+                put(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onProductSaved(Product product) {
+        StockEntry previous;
+        lock.writeLock().lock();
+        try {
+            previous = remove(product.getId());
+            put(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        int stock = stockOf(product);
+        int before = previous != null ? previous.stock() : Integer.MAX_VALUE;
+        if (stock <= 0 && before > 0) {
+            publish("out-of-stock", product, stock);
+        } else if (stock <= alertThreshold && before > alertThreshold) {
+            publish("low-stock", product, stock);
+        } else if (stock > alertThreshold && previous != null && before <= alertThreshold) {
+            publish("restocked", product, stock);
+        }
+    }
+    
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int getAlertThreshold() {
+        return alertThreshold;
+    }
+    
+    public long countAtOrBelow(int threshold) {
+        checkThreshold(threshold);
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int i = bucket(threshold) + 1; i > 0; i -= i & -i) {
+                count += fenwick[i];
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Lowest stock first
+    public List<Map<String, Object>> listAtOrBelow(int threshold, int limit) {
+        checkThreshold(threshold);
+        List<Map<String, Object>> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (StockEntry entry : byStock) {
+                if (entry.stock() > threshold || result.size() >= limit) {
+                    break;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("productId", entry.productId());
+                item.put("name", entry.name());
+                item.put("stockQuantity", entry.stock());
+                result.add(item);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+    
+    private void publish(String type, Product product, int stock) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("productId", product.getId());
+        event.put("name", product.getName());
+        event.put("stockQuantity", stock);
+        event.put("threshold", alertThreshold);
+        try {
+            sender.execute(() -> send(type, event));
+        } catch (RejectedExecutionException e) {
+            System.out.println("Low-stock alert queue full, dropping " + type + " for product " + product.getId());
+        }
+    }
+    
+    private void send(String type, Map<String, Object> event) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name(type).data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; drop it so one dead stream does not slow down the rest
+                subscribers.remove(emitter);
+            }
+        }
+    }
+    
+    // Callers hold the write lock
+    private void put(Product product) {
+        StockEntry entry = new StockEntry(product.getId(), product.getName(), stockOf(product));
+        entries.put(entry.productId(), entry);
+        byStock.add(entry);
+        add(bucket(entry.stock()), 1);
+    }
+    
+    private StockEntry remove(Long productId) {
+        StockEntry entry = entries.remove(productId);
+        if (entry != null) {
+            byStock.remove(entry);
+            add(bucket(entry.stock()), -1);
+        }
+        return entry;
+    }
+    
+    private void add(int bucket, int delta) {
+        for (int i = bucket + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+    
+    // Bucket 0 holds stock <= 0, the last bucket everything above maxThreshold
+    private int bucket(int stock) {
+        return Math.max(0, Math.min(stock, maxThreshold + 1));
+    }
+    
+    private int stockOf(Product product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+    }
+    
+    private void checkThreshold(int threshold) {
+        if (threshold < 0 || threshold > maxThreshold) {
+            throw new IllegalArgumentException("Threshold must be between 0 and " + maxThreshold);
+        }
+    }
+}
\ No newline at end of file
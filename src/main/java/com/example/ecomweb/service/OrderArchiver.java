@@ -0,0 +1,201 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Order;
+import com.example.ecomweb.repository.ArchivedOrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Moves closed orders older than min-age-days from orders/order_items into orders_archive and
+// order_items_archive, so the hot tables and their indexes only carry recent and open orders.
+// Runs off-peak in chunks with a pause in between; each chunk is one short transaction that
+// copies and deletes the same locked rows, so an order is always in exactly one place.
+@Component
+public class OrderArchiver {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+    
+    @Value("${app.orders.archive.min-age-days:180}")
+    private int minAgeDays;
+    
+    @Value("${app.orders.archive.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${app.orders.archive.pause-ms:200}")
+    private long pauseMs;
+    
+    // Whatever is left over is picked up by the next run
+    @Value("${app.orders.archive.max-run-ms:600000}")
+    private long maxRunMs;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong ordersArchived = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile long lastRunOrders;
+    private volatile LocalDateTime lastRunAt;
+    
+    // The archive only changes when a chunk moves in, so its totals are computed once and kept
+    // until then instead of being summed over years of history on every dashboard load
+    private final Object totalsLock = new Object();
+    private ArchiveTotals totals;
+    
+    public record ArchiveTotals(Map<Order.OrderStatus, Long> counts, BigDecimal revenue) {
+        
+        public long count() {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+        
+        public long count(Order.OrderStatus status) {
+            return counts.getOrDefault(status, 0L);
+        }
+    }
+    
+    @Scheduled(cron = "${app.orders.archive.cron:0 0 4 * * *}")
+    public void archive() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long moved = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+            while (System.currentTimeMillis() - started < maxRunMs) {
+                int archived = archiveChunk(cutoff);
+                if (archived > 0) {
+                    moved += archived;
+                    ordersArchived.addAndGet(archived);
+                    chunks.incrementAndGet();
+                    invalidateTotals();
+                }
+                if (archived < chunkSize) {
+                    break;
+                }
+                pause();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Order archiving failed: " + e.getMessage());
+        } finally {
+            long elapsed = System.currentTimeMillis() - started;
+            runs.incrementAndGet();
+            totalMillis.addAndGet(elapsed);
+            lastRunMillis = elapsed;
+            lastRunOrders = moved;
+            lastRunAt = LocalDateTime.now();
+            running.set(false);
+            if (moved > 0) {
+                System.out.println("Archived " + moved + " orders in " + elapsed + " ms");
+            }
+        }
+    }
+    
+    public ArchiveTotals getTotals() {
+        synchronized (totalsLock) {
+            if (totals == null) {
+                Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+                BigDecimal revenue = BigDecimal.ZERO;
+                for (Object[] row : archivedOrderRepository.sumByStatus()) {
+                    Order.OrderStatus status = (Order.OrderStatus) row[0];
+                    counts.put(status, ((Number) row[1]).longValue());
+                    // Same rule as OrderRepository.calculateTotalRevenue
+                    if (status != Order.OrderStatus.CANCELLED) {
+                        revenue = revenue.add((BigDecimal) row[2]);
+                    }
+                }
+                totals = new ArchiveTotals(counts, revenue);
+            }
+            return totals;
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("chunks", chunks.get());
+        stats.put("ordersArchived", ordersArchived.get());
+        stats.put("totalMillis", totalMillis.get());
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunOrders", lastRunOrders);
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("minAgeDays", minAgeDays);
+        stats.put("archivedOrders", getTotals().count());
+        return stats;
+    }
+    
+    // FOR UPDATE re-reads the status under a row lock, so an order whose status is being changed
+    // is either archived with its final status or left for a later run. No ORDER BY: the
+    // (status, order_date, id) index hands rows over in index order and LIMIT stops the scan.
+    private int archiveChunk(LocalDateTime cutoff) {
+        Integer archived = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Object> args = new ArrayList<>();
+            for (Order.OrderStatus orderStatus : Order.OrderStatus.values()) {
+                if (orderStatus.isFinal()) {
+                    args.add(orderStatus.name());
+                }
+            }
+            String statuses = String.join(",", Collections.nCopies(args.size(), "?"));
+            args.add(Timestamp.valueOf(cutoff));
+            args.add(chunkSize);
+            List<Long> orderIds = jdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE status IN (" + statuses + ") AND order_date < ? LIMIT ? FOR UPDATE",
+                Long.class, args.toArray());
+            if (orderIds.isEmpty()) {
+                return 0;
+            }
+            
+            String ids = String.join(",", Collections.nCopies(orderIds.size(), "?"));
+            Object[] idArgs = orderIds.toArray();
+            jdbcTemplate.update(
+                "INSERT INTO orders_archive (id, user_id, order_date, status, total_amount, shipping_address, payment_method, archived_at) "
+                    + "SELECT id, user_id, order_date, status, total_amount, shipping_address, payment_method, CURRENT_TIMESTAMP "
+                    + "FROM orders WHERE id IN (" + ids + ")", idArgs);
+            jdbcTemplate.update(
+                "INSERT INTO order_items_archive (id, order_id, product_id, quantity, price) "
+                    + "SELECT id, order_id, product_id, quantity, price FROM order_items WHERE order_id IN (" + ids + ")", idArgs);
+            jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (" + ids + ")", idArgs);
+            jdbcTemplate.update("DELETE FROM orders WHERE id IN (" + ids + ")", idArgs);
+            return orderIds.size();
+        });
+        return archived != null ? archived : 0;
+    }
+    
+    private void invalidateTotals() {
+        synchronized (totalsLock) {
+            totals = null;
+        }
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Order archiving interrupted");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Order;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Order export for reconciliation. Orders and their lines come from one join read through a
+// server-side cursor (fetch-size rows per round trip) and are written as they arrive, with a
+// flush after every fetch, so neither the heap nor the response buffer grows with the range.
+@Service
+public class OrderExportService {
+    
+    private static final String[] CSV_COLUMNS = {
+        "orderId", "orderDate", "status", "totalAmount", "paymentMethod", "shippingAddress",
+        "userId", "customerEmail", "itemId", "productId", "productName", "quantity", "price"
+    };
+    
+    public enum Format {
+        CSV("text/csv"), NDJSON("application/x-ndjson");
+        
+        private final String contentType;
+        
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+        
+        public String getContentType() { return contentType; }
+        
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value);
+            }
+        }
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+    
+    // Own template so the fetch size (and with useCursorFetch, the server-side cursor) applies here only
+    private JdbcTemplate cursorTemplate;
+    
+    @PostConstruct
+    public void init() {
+        cursorTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursorTemplate.setFetchSize(fetchSize);
+    }
+    
+    // 'from' and 'to' are inclusive days; either may be null for an open end. Runs in one
+    // read-only transaction so the whole export sees a single snapshot. Archived orders come
+    // first, then the hot table, each in date order; the archive only holds closed orders, so it
+    // is skipped when filtering on any other status.
+    public long exportOrders(LocalDate from, LocalDate to, String status, Format format, OutputStream out) {
+        boolean includeArchive = status == null || Order.OrderStatus.valueOf(status).isFinal();
+        
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        Long written = transaction.execute(txStatus -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                OrderRowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+                // The archive keeps no foreign key to users, so its orders outlive their user
+                if (includeArchive) {
+                    query("orders_archive", "order_items_archive", "LEFT JOIN", from, to, status, rowWriter);
+                }
+                query("orders", "order_items", "JOIN", from, to, status, rowWriter);
+                rowWriter.finish();
+                writer.flush();
+                return rowWriter.orders;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written != null ? written : 0;
+    }
+    
+    private void query(String ordersTable, String itemsTable, String userJoin, LocalDate from, LocalDate to,
+                       String status, OrderRowWriter rowWriter) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT o.id, o.order_date, o.status, o.total_amount, o.payment_method, o.shipping_address, o.user_id, " +
+            "u.email, i.id AS item_id, i.product_id, p.name AS product_name, i.quantity, i.price " +
+            "FROM " + ordersTable + " o " + userJoin + " users u ON u.id = o.user_id " +
+            "LEFT JOIN " + itemsTable + " i ON i.order_id = o.id " +
+            "LEFT JOIN products p ON p.id = i.product_id WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND o.order_date >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND o.order_date < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status);
+        }
+        // Lines of an order arrive together; the (order_date, id) index delivers this order without a sort
+        sql.append(" ORDER BY o.order_date, o.id");
+        cursorTemplate.query(sql.toString(), rowWriter, args.toArray());
+    }
+    
+    private abstract class OrderRowWriter implements RowCallbackHandler {
+        final Writer writer;
+        long orders;
+        long rows;
+        long currentOrderId = -1;
+        
+        OrderRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+        
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long orderId = rs.getLong("id");
+                boolean newOrder = orderId != currentOrderId;
+                if (newOrder) {
+                    currentOrderId = orderId;
+                    orders++;
+                }
+                writeRow(rs, newOrder);
+                // Hand each fetched chunk to the client instead of holding it in the buffer
+                if (++rows % fetchSize == 0) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        abstract void writeRow(ResultSet rs, boolean newOrder) throws SQLException, IOException;
+        
+        void finish() throws IOException {
+        }
+    }
+    
+    // One line per order line; an order without lines still gets a row with empty line columns
+    private class CsvRowWriter extends OrderRowWriter {
+        
+        CsvRowWriter(Writer writer) throws IOException {
+            super(writer);
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write("\r\n");
+        }
+        
+        @Override
+        void writeRow(ResultSet rs, boolean newOrder) throws SQLException, IOException {
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            Object[] values = {
+                rs.getLong("id"), orderDate != null ? orderDate.toLocalDateTime() : null, rs.getString("status"),
+                rs.getBigDecimal("total_amount"), rs.getString("payment_method"), rs.getString("shipping_address"),
+                rs.getLong("user_id"), rs.getString("email"), rs.getObject("item_id"), rs.getObject("product_id"),
+                rs.getString("product_name"), rs.getObject("quantity"), rs.getBigDecimal("price")
+            };
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvField(values[i]);
+            }
+            writer.write("\r\n");
+        }
+        
+        private void writeCsvField(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+    
+    // One JSON object per order with its lines nested; only the order being read is held in memory
+    private class NdjsonRowWriter extends OrderRowWriter {
+        private final JsonGenerator generator;
+        private Map<String, Object> order;
+        private List<Map<String, Object>> items;
+        
+        NdjsonRowWriter(Writer writer) throws IOException {
+            super(writer);
+            generator = objectMapper.getFactory().createGenerator(writer);
+            // The generator must not close the response stream after each value, and the newline
+            // below is the only separator between records
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+        
+        @Override
+        void writeRow(ResultSet rs, boolean newOrder) throws SQLException, IOException {
+            if (newOrder) {
+                finish();
+                Timestamp orderDate = rs.getTimestamp("order_date");
+                order = new LinkedHashMap<>();
+                order.put("id", rs.getLong("id"));
+                order.put("orderDate", orderDate != null ? orderDate.toLocalDateTime() : null);
+                order.put("status", rs.getString("status"));
+                order.put("totalAmount", rs.getBigDecimal("total_amount"));
+                order.put("paymentMethod", rs.getString("payment_method"));
+                order.put("shippingAddress", rs.getString("shipping_address"));
+                order.put("userId", rs.getLong("user_id"));
+                order.put("customerEmail", rs.getString("email"));
+                items = new ArrayList<>();
+                order.put("items", items);
+            }
+            if (rs.getObject("item_id") != null) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", rs.getLong("item_id"));
+                item.put("productId", rs.getLong("product_id"));
+                item.put("productName", rs.getString("product_name"));
+                item.put("quantity", rs.getInt("quantity"));
+                item.put("price", rs.getBigDecimal("price"));
+                items.add(item);
+            }
+        }
+        
+        @Override
+        void finish() throws IOException {
+            if (order == null) {
+                return;
+            }
+            objectMapper.writeValue(generator, order);
+            generator.flush();
+            writer.write('\n');
+            order = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,301 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Order;
+import com.example.ecomweb.entity.OrderRequest;
+import com.example.ecomweb.entity.User;
+import com.example.ecomweb.repository.OrderRequestRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Asynchronous order placement. Accepting an order costs one insert into order_requests; the
+// checkout itself runs later on a small worker pool draining a bounded queue in micro-batches,
+// so a burst waits here instead of holding request threads and pool connections. Queued rows
+// outlive a restart and are put back on the queue by the recovery scan.
+@Service
+public class OrderIntakeService {
+    
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_ERROR_LENGTH = 255;
+    
+    @Autowired
+    private OrderRequestRepository orderRequestRepository;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.orders.intake.workers:4}")
+    private int workerThreads;
+    
+    @Value("${app.orders.intake.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    @Value("${app.orders.intake.batch-size:20}")
+    private int batchSize;
+    
+    // How long finished requests (and so their idempotency keys) are kept
+    @Value("${app.orders.intake.retention-hours:24}")
+    private int retentionHours;
+    
+    private BlockingQueue<Long> queue;
+    // Ids queued or being processed, so the recovery scan never queues one twice
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private ExecutorService workers;
+    private volatile boolean running;
+    
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    
+    @PostConstruct
+    public void startWorkers() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerThreads; i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+    
+    // Workers finish the batch in hand; whatever is still queued stays QUEUED for the next start
+    @PreDestroy
+    public void stopWorkers() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+    
+    // Stores the request and queues it. A key seen before for this user returns the original
+    // request, whatever state it is in, so client retries never place a second order.
+    public OrderRequest accept(Long userId, String idempotencyKey, String shippingAddress, String paymentMethod) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        Optional<OrderRequest> existing = orderRequestRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+        if (existing.isPresent()) {
+            return replay(existing.get(), shippingAddress, paymentMethod);
+        }
+        if (queue.remainingCapacity() == 0) {
+            rejected.incrementAndGet();
+            throw new OrderQueueFullException();
+        }
+        
+        OrderRequest request;
+        try {
+            request = orderRequestRepository.saveAndFlush(
+                new OrderRequest(userId, idempotencyKey, shippingAddress, paymentMethod));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry with the same key inserted first
+            OrderRequest winner = orderRequestRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e);
+            return replay(winner, shippingAddress, paymentMethod);
+        }
+        
+        pending.add(request.getId());
+        if (!queue.offer(request.getId())) {
+            // Filled up meanwhile; drop the row so a retry with this key is not stuck behind it
+            pending.remove(request.getId());
+            orderRequestRepository.deleteById(request.getId());
+            rejected.incrementAndGet();
+            throw new OrderQueueFullException();
+        }
+        accepted.incrementAndGet();
+        return request;
+    }
+    
+    public Optional<OrderRequest> getRequest(Long requestId) {
+        return orderRequestRepository.findById(requestId);
+    }
+    
+    // Picks up rows queued before a restart. Young rows are skipped: their accept() call is
+    // still about to queue them.
+    @Scheduled(initialDelayString = "${app.orders.intake.recover-delay-ms:10000}",
+               fixedDelayString = "${app.orders.intake.recover-interval-ms:60000}")
+    public void requeueStranded() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<Long> ids = jdbcTemplate.queryForList(
+            "SELECT id FROM order_requests WHERE status = ? AND created_at < ? ORDER BY id LIMIT ?",
+            Long.class, OrderRequest.Status.QUEUED.name(),
+            Timestamp.valueOf(LocalDateTime.now().minusSeconds(30)), room);
+        int requeued = 0;
+        for (Long id : ids) {
+            if (!pending.add(id)) {
+                continue;
+            }
+            if (!queue.offer(id)) {
+                pending.remove(id);
+                break;
+            }
+            requeued++;
+        }
+        if (requeued > 0) {
+            recovered.addAndGet(requeued);
+            System.out.println("Requeued " + requeued + " stranded order requests");
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.orders.intake.purge-interval-ms:3600000}")
+    public void purgeFinished() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                "DELETE FROM order_requests WHERE status <> ? AND created_at < ? LIMIT 1000",
+                OrderRequest.Status.QUEUED.name(), cutoff);
+        } while (deleted == 1000);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("workers", workerThreads);
+        stats.put("accepted", accepted.get());
+        stats.put("replayed", replayed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("recovered", recovered.get());
+        return stats;
+    }
+    
+    private OrderRequest replay(OrderRequest request, String shippingAddress, String paymentMethod) {
+        if (!Objects.equals(request.getShippingAddress(), shippingAddress)
+                || !Objects.equals(request.getPaymentMethod(), paymentMethod)) {
+            throw new IllegalStateException("Idempotency-Key was already used for a different order");
+        }
+        replayed.incrementAndGet();
+        return request;
+    }
+    
+    // Takes whatever has piled up (up to batchSize) at once: the batch's requests and users are
+    // read with one query each, then every order is placed in its own transaction so one
+    // failing checkout cannot undo its neighbours
+    private void runWorker() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batches.incrementAndGet();
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Order intake batch failed: " + e.getMessage());
+            } finally {
+                batch.forEach(pending::remove);
+                batch.clear();
+            }
+        }
+    }
+    
+    private void processBatch(List<Long> ids) {
+        List<OrderRequest> requests = orderRequestRepository.findAllById(ids);
+        List<Long> userIds = new ArrayList<>();
+        for (OrderRequest request : requests) {
+            userIds.add(request.getUserId());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userService.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+        
+        for (OrderRequest request : requests) {
+            if (request.getStatus() != OrderRequest.Status.QUEUED) {
+                continue;
+            }
+            User user = users.get(request.getUserId());
+            if (user == null) {
+                markFailed(request.getId(), "User not found");
+                continue;
+            }
+            try {
+                if (place(request, user)) {
+                    completed.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                markFailed(request.getId(), e.getMessage());
+            }
+        }
+    }
+    
+    // The request row is locked and marked COMPLETED in the order's own transaction, so an
+    // order exists exactly when its request says so, even across instances or a crash
+    private boolean place(OrderRequest request, User user) {
+        Boolean placed = new TransactionTemplate(transactionManager).execute(status -> {
+            String current = jdbcTemplate.queryForObject(
+                "SELECT status FROM order_requests WHERE id = ? FOR UPDATE", String.class, request.getId());
+            if (!OrderRequest.Status.QUEUED.name().equals(current)) {
+                return false;
+            }
+            Order order = orderService.createOrder(user, request.getShippingAddress(), request.getPaymentMethod());
+            jdbcTemplate.update("UPDATE order_requests SET status = ?, order_id = ?, completed_at = ? WHERE id = ?",
+                OrderRequest.Status.COMPLETED.name(), order.getId(), Timestamp.valueOf(LocalDateTime.now()), request.getId());
+            return true;
+        });
+        return Boolean.TRUE.equals(placed);
+    }
+    
+    private void markFailed(Long requestId, String error) {
+        String message = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        int updated = jdbcTemplate.update(
+            "UPDATE order_requests SET status = ?, error = ?, completed_at = ? WHERE id = ? AND status = ?",
+            OrderRequest.Status.FAILED.name(), message, Timestamp.valueOf(LocalDateTime.now()),
+            requestId, OrderRequest.Status.QUEUED.name());
+        if (updated > 0) {
+            failed.incrementAndGet();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.example.ecomweb.service;
+
+// Thrown when the order intake queue has no room; the client should retry later with the same key
+public class OrderQueueFullException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public OrderQueueFullException() {
+        super("Order queue is full, please retry shortly");
+    }
+}
\ No newline at end of file
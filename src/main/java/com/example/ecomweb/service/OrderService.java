@@ -1,13 +1,30 @@
 package com.example.ecomweb.service;
 
+import com.example.ecomweb.dto.CursorPage;
+import com.example.ecomweb.dto.OrderCursor;
+import com.example.ecomweb.dto.OrderSummary;
 import com.example.ecomweb.entity.*;
+import com.example.ecomweb.repository.ArchivedOrderItemRepository;
+import com.example.ecomweb.repository.ArchivedOrderRepository;
 import com.example.ecomweb.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
@@ -21,6 +38,31 @@ public class OrderService {
     @Autowired
     private ProductService productService;
     
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+    
+    @Autowired
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+    
+    @Autowired
+    private OrderArchiver orderArchiver;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Checkout as a fixed sequence of set-based steps, so the statement count does not grow with
+    // the number of cart lines: the cart comes from memory with one bulk fetch for uncached
+    // products, stock is taken in one batch, the order is one insert, its items one batch and
+    // the cart is emptied by one delete.
     @Transactional
     public Order createOrder(User user, String shippingAddress, String paymentMethod) {
         List<CartItem> cartItems = cartService.getCartItems(user);
@@ -28,49 +70,117 @@ public class OrderService {
             throw new RuntimeException("Cart is empty");
         }
         
-        // Validate stock availability
+        // Take the stock first: the conditional decrements are the availability check, and a
+        // shortfall aborts the order before anything has been written
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cartItems) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        // Lines whose hold expired must first win their units back from other carts' holds;
+        // the holds are released when clearCart's transaction (this one) commits
         for (CartItem item : cartItems) {
-            if (!productService.isProductAvailable(item.getProduct().getId(), item.getQuantity())) {
+            try {
+                stockReservationService.reserve(user.getId(), item.getProduct().getId(),
+                        quantities.get(item.getProduct().getId()), item.getProduct().getStockQuantity());
+            } catch (RuntimeException e) {
                 throw new RuntimeException("Product " + item.getProduct().getName() + " is out of stock");
             }
         }
+        try {
+            productService.decrementStock(quantities);
+        } catch (InsufficientStockException e) {
+            Long productId = e.getProductIds().get(0);
+            String name = cartItems.stream()
+                .filter(item -> item.getProduct().getId().equals(productId))
+                .map(item -> item.getProduct().getName())
+                .findFirst()
+                .orElse(String.valueOf(productId));
+            throw new RuntimeException("Product " + name + " is out of stock");
+        }
         
-        BigDecimal totalAmount = cartService.getCartTotal(user);
+        // Priced from the items already loaded above rather than reading the cart again
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (CartItem cartItem : cartItems) {
+            totalAmount = totalAmount.add(cartItem.getProduct().getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+        }
         Order order = new Order(user, totalAmount, shippingAddress);
         order.setPaymentMethod(paymentMethod);
         order = orderRepository.save(order);
         
-        // Create order items and update stock
+        // The items are written by JDBC below; detached, the order cannot cascade them a second time
+        entityManager.detach(order);
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
         for (CartItem cartItem : cartItems) {
-            OrderItem orderItem = new OrderItem(order, cartItem.getProduct(), 
-                                              cartItem.getQuantity(), cartItem.getProduct().getPrice());
-            order.getOrderItems().add(orderItem);
-            
-            // Update product stock
-            productService.updateStock(cartItem.getProduct().getId(), cartItem.getQuantity());
+            orderItems.add(new OrderItem(order, cartItem.getProduct(),
+                                         cartItem.getQuantity(), cartItem.getProduct().getPrice()));
         }
+        insertOrderItems(order, orderItems);
+        order.getOrderItems().addAll(orderItems);
         
-        // Clear cart
         cartService.clearCart(user);
         
-        return orderRepository.save(order);
+        return order;
     }
     
-    public List<Order> getUserOrders(User user) {
-        return orderRepository.findByUserOrderByOrderDateDesc(user);
+    private CursorPage<OrderSummary> summaryPage(Long userId, Order.OrderStatus status, String after, int limit) {
+        OrderCursor cursor = after == null || after.isBlank() ? null : OrderCursor.decode(after);
+        
+        // Fetch one extra row to know whether another page exists
+        List<OrderSummary> rows = orderRepository.findSummaries(userId, status, cursor, limit + 1);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        
+        List<OrderSummary> items = rows.subList(0, limit);
+        return new CursorPage<>(items, OrderCursor.after(items.get(limit - 1)).encode());
     }
     
-    public Optional<Order> getOrderById(Long orderId) {
-        return orderRepository.findById(orderId);
+    // IDENTITY ids keep Hibernate from batching these inserts, so they go out as one JDBC batch
+    private void insertOrderItems(Order order, List<OrderItem> orderItems) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItem item : orderItems) {
+                    statement.setLong(1, order.getId());
+                    statement.setLong(2, item.getProduct().getId());
+                    statement.setInt(3, item.getQuantity());
+                    statement.setBigDecimal(4, item.getPrice());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < orderItems.size() && keys.next(); i++) {
+                        orderItems.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+    
+    public CursorPage<OrderSummary> getUserOrderHistory(Long userId, String after, int limit) {
+        return summaryPage(userId, null, after, limit);
+    }
+    
+    public CursorPage<OrderSummary> getOrderSummaries(Order.OrderStatus status, String after, int limit) {
+        return summaryPage(null, status, after, limit);
     }
     
-    public List<Order> getAllOrders() {
-        return orderRepository.findAllByOrderByOrderDateDesc();
+    // Falls back to the archive. Archiving copies and deletes in one transaction, so an order read
+    // from 'orders' first is found in one of the two.
+    public Optional<Order> getOrderById(Long orderId) {
+        Optional<Order> order = orderRepository.findById(orderId);
+        return order.isPresent() ? order : findArchivedOrder(orderId);
     }
     
+    @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
         Optional<Order> orderOpt = orderRepository.findById(orderId);
         if (!orderOpt.isPresent()) {
+            if (archivedOrderRepository.existsById(orderId)) {
+                throw new RuntimeException("Archived orders cannot be changed");
+            }
             throw new RuntimeException("Order not found");
         }
         
@@ -80,16 +190,19 @@ public class OrderService {
         
         // If order is cancelled, restore stock
         if (status == Order.OrderStatus.CANCELLED && oldStatus != Order.OrderStatus.CANCELLED) {
+            Map<Long, Integer> quantities = new HashMap<>();
             for (OrderItem item : order.getOrderItems()) {
-                productService.restoreStock(item.getProduct().getId(), item.getQuantity());
+                quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
             }
+            productService.restoreStock(quantities);
         }
         
         return orderRepository.save(order);
     }
     
-    public List<Order> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatus(status);
+    public long getOrdersCountByStatus(Order.OrderStatus status) {
+        long count = orderRepository.countByStatus(status);
+        return status.isFinal() ? count + orderArchiver.getTotals().count(status) : count;
     }
     
     public long getPendingOrdersCount() {
@@ -97,10 +210,39 @@ public class OrderService {
     }
     
     public long getTotalOrdersCount() {
-        return orderRepository.count();
+        return orderRepository.count() + orderArchiver.getTotals().count();
     }
     
+    // Only the hot table is summed; the archive's share is cached by OrderArchiver
     public BigDecimal getTotalRevenue() {
-        return orderRepository.calculateTotalRevenue();
+        return orderRepository.calculateTotalRevenue().add(orderArchiver.getTotals().revenue());
+    }
+    
+    // Rebuilt as a detached Order so callers see the same shape as a hot one. A product deleted
+    // since the order was archived leaves its line with a null product.
+    private Optional<Order> findArchivedOrder(Long orderId) {
+        return archivedOrderRepository.findById(orderId).map(archived -> {
+            Order order = new Order();
+            order.setId(archived.getId());
+            order.setUser(userService.findById(archived.getUserId()).orElse(null));
+            order.setOrderDate(archived.getOrderDate());
+            order.setStatus(archived.getStatus());
+            order.setTotalAmount(archived.getTotalAmount());
+            order.setShippingAddress(archived.getShippingAddress());
+            order.setPaymentMethod(archived.getPaymentMethod());
+            
+            List<ArchivedOrderItem> items = archivedOrderItemRepository.findByOrderIdOrderByIdAsc(orderId);
+            Set<Long> productIds = new HashSet<>();
+            for (ArchivedOrderItem item : items) {
+                productIds.add(item.getProductId());
+            }
+            Map<Long, Product> products = productService.getProductsById(productIds);
+            for (ArchivedOrderItem item : items) {
+                OrderItem orderItem = new OrderItem(order, products.get(item.getProductId()), item.getQuantity(), item.getPrice());
+                orderItem.setId(item.getId());
+                order.getOrderItems().add(orderItem);
+            }
+            return order;
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Read-through LRU cache for products by id, bounded by entry count and estimated heap weight.
+// Invalidated after commit through ProductChangeListener; callers always get their own copy.
+@Component
+public class ProductCache implements ProductChangeListener {
+    
+    @Value("${app.cache.products.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${app.cache.products.max-weight-bytes:16777216}")
+    private long maxWeightBytes;
+    
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    private record Entry(Product product, long weight) {}
+    
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return Optional.of(copyOf(entry.product()));
+            }
+            loadGeneration = generation;
+        }
+        
+        misses.incrementAndGet();
+        Optional<Product> loaded = loader.apply(id);
+        if (loaded.isPresent()) {
+            Product snapshot = copyOf(loaded.get());
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    put(id, snapshot);
+                }
+            }
+        }
+        return loaded;
+    }
+    
+    // Cached products are copied out of memory; the misses are loaded together with one call to 'loader'
+    public Map<Long, Product> getAll(Collection<Long> ids, Function<Collection<Long>, List<Product>> loader) {
+        Map<Long, Product> result = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    result.put(id, copyOf(entry.product()));
+                } else {
+                    missing.add(id);
+                }
+            }
+            loadGeneration = generation;
+        }
+        hits.addAndGet(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        
+        misses.addAndGet(missing.size());
+        List<Product> loaded = loader.apply(missing);
+        synchronized (this) {
+            for (Product product : loaded) {
+                if (loadGeneration == generation) {
+                    put(product.getId(), copyOf(product));
+                }
+            }
+        }
+        for (Product product : loaded) {
+            result.put(product.getId(), product);
+        }
+        return result;
+    }
+    
+    public synchronized void invalidate(Long id) {
+        generation++;
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            totalWeight -= removed.weight();
+        }
+    }
+    
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        totalWeight = 0;
+    }
+    
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long requestCount = hitCount + misses.get();
+        stats.put("size", entries.size());
+        stats.put("weightBytes", totalWeight);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxWeightBytes", maxWeightBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+        return stats;
+    }
+    
+    @Override
+    public void rebuild(List<Product> products) {
+        clear();
+    }
+    
+    @Override
+    public void onProductSaved(Product product) {
+        invalidate(product.getId());
+    }
+    
+    @Override
+    public void onProductDeleted(Long productId) {
+        invalidate(productId);
+    }
+    
+    private void put(Long id, Product product) {
+        long weight = weigh(product);
+        Entry previous = entries.put(id, new Entry(product, weight));
+        if (previous != null) {
+            totalWeight -= previous.weight();
+        }
+        totalWeight += weight;
+        
+        // Least recently used entries sit at the head of the access-ordered map
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeightBytes) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            totalWeight -= eldest.weight();
+            evictions.incrementAndGet();
+        }
+    }
+    
+    // Rough shallow-heap estimate: object headers and boxed fields plus two bytes per string char
+    private static long weigh(Product product) {
+        return 160
+            + stringWeight(product.getName())
+            + stringWeight(product.getDescription())
+            + stringWeight(product.getCategory())
+            + stringWeight(product.getBrand())
+            + stringWeight(product.getImageUrl())
+            + stringWeight(product.getImageHash())
+            + stringWeight(product.getImageName())
+            + stringWeight(product.getImageType());
+    }
+    
+    private static long stringWeight(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+    
+    // Cached instances are never handed out, so a caller mutating its product cannot corrupt the cache
+    private static Product copyOf(Product source) {
+        Product copy = new Product(source.getName(), source.getDescription(), source.getPrice(),
+                source.getStockQuantity(), source.getCategory());
+        copy.setId(source.getId());
+        copy.setBrand(source.getBrand());
+        copy.setImageUrl(source.getImageUrl());
+        copy.setImageHash(source.getImageHash());
+        copy.setImageName(source.getImageName());
+        copy.setImageType(source.getImageType());
+        copy.setImageSize(source.getImageSize());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import java.util.List;
+
+// In-memory catalog views that ProductService keeps in sync with product writes
+public interface ProductChangeListener {
+    
+    // Replace all state with the given snapshot of the catalog
+    void rebuild(List<Product> products);
+    
+    void onProductSaved(Product product);
+    
+    void onProductDeleted(Long productId);
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import com.example.ecomweb.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Catalog feed export. Products are read through a fetch-size cursor and written to the
+// response one at a time, so memory use does not depend on the size of the catalog.
+@Service
+public class ProductExportService {
+    
+    private static final String[] CSV_COLUMNS = {
+        "id", "name", "description", "price", "stockQuantity", "category", "brand",
+        "imageUrl", "imageHash", "createdAt", "updatedAt"
+    };
+    
+    public enum Format {
+        CSV("text/csv"), NDJSON("application/x-ndjson");
+        
+        private final String contentType;
+        
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+        
+        public String getContentType() { return contentType; }
+        
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value);
+            }
+        }
+    }
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+    
+    // The cursor only lives inside a transaction, so the whole export runs in one read-only transaction
+    public long exportProducts(String category, Format format, OutputStream out) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        
+        Long written = transaction.execute(status -> {
+            try (Stream<Product> products = productRepository.streamAll(category, fetchSize)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+                long count = format == Format.CSV
+                        ? writeCsv(products.iterator(), writer)
+                        : writeNdjson(products.iterator(), writer);
+                writer.flush();
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written != null ? written : 0;
+    }
+    
+    private long writeNdjson(Iterator<Product> products, Writer writer) throws IOException {
+        long count = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        // The generator must not close the response stream after each value
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (products.hasNext()) {
+            objectMapper.writeValue(generator, products.next());
+            generator.flush();
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+    
+    private long writeCsv(Iterator<Product> products, Writer writer) throws IOException {
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write("\r\n");
+        
+        long count = 0;
+        while (products.hasNext()) {
+            Product product = products.next();
+            Object[] values = {
+                product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), product.getCategory(), product.getBrand(),
+                product.getImageUrl(), product.getImageHash(), product.getCreatedAt(), product.getUpdatedAt()
+            };
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvField(writer, values[i]);
+            }
+            writer.write("\r\n");
+            count++;
+        }
+        return count;
+    }
+    
+    private void writeCsvField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Columnar facet index: every product gets a slot, every facet value a bitmap of slots
+@Component
+public class ProductFacetIndex implements ProductChangeListener {
+    
+    @Value("${app.catalog.facets.price-buckets:25,50,100,250,500,1000}")
+    private List<BigDecimal> priceBoundaries;
+    
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int nextSlot;
+    
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> categories = new TreeMap<>();
+    private final Map<String, BitSet> brands = new TreeMap<>();
+    private final Map<String, BitSet> priceBuckets = new LinkedHashMap<>();
+    private final BitSet inStock = new BitSet();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public static class FacetFilter {
+        private final Collection<String> categories;
+        private final Collection<String> brands;
+        private final Collection<String> priceBuckets;
+        private final Boolean inStock;
+        
+        public FacetFilter(Collection<String> categories, Collection<String> brands,
+                           Collection<String> priceBuckets, Boolean inStock) {
+            this.categories = categories;
+            this.brands = brands;
+            this.priceBuckets = priceBuckets;
+            this.inStock = inStock;
+        }
+    }
+    
+    @PostConstruct
+    public void initPriceBuckets() {
+        List<BigDecimal> sortedBoundaries = new ArrayList<>(priceBoundaries);
+        sortedBoundaries.sort(null);
+        priceBoundaries = sortedBoundaries;
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : priceBoundaries) {
+            priceBuckets.put(lower.toPlainString() + "-" + upper.toPlainString(), new BitSet());
+            lower = upper;
+        }
+        priceBuckets.put(lower.toPlainString() + "+", new BitSet());
+    }
+    
+    @Override
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            slotByProductId.clear();
+            freeSlots.clear();
+            nextSlot = 0;
+            live.clear();
+            categories.clear();
+            brands.clear();
+            priceBuckets.values().forEach(BitSet::clear);
+            inStock.clear();
+            for (Product product : products) {
+                addProduct(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onProductSaved(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(product.getId());
+            addProduct(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeProduct(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Multi-select semantics: values are OR'ed within a facet and facets are AND'ed together,
+    // and each facet's counts ignore that facet's own selection so siblings stay visible
+    public Map<String, Object> facets(FacetFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = union(categories, filter.categories);
+            BitSet brandMask = union(brands, filter.brands);
+            BitSet priceMask = union(priceBuckets, filter.priceBuckets);
+            BitSet stockMask = stockMask(filter.inStock);
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("total", intersect(categoryMask, brandMask, priceMask, stockMask).cardinality());
+            result.put("categories", count(categories, intersect(brandMask, priceMask, stockMask)));
+            result.put("brands", count(brands, intersect(categoryMask, priceMask, stockMask)));
+            result.put("priceBuckets", count(priceBuckets, intersect(categoryMask, brandMask, stockMask)));
+            
+            BitSet base = intersect(categoryMask, brandMask, priceMask);
+            Map<String, Integer> stockCounts = new LinkedHashMap<>();
+            int available = countAnd(inStock, base);
+            stockCounts.put("true", available);
+            stockCounts.put("false", base.cardinality() - available);
+            result.put("inStock", stockCounts);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void addProduct(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+        slotByProductId.put(product.getId(), slot);
+        live.set(slot);
+        if (product.getCategory() != null) {
+            categories.computeIfAbsent(product.getCategory(), key -> new BitSet()).set(slot);
+        }
+        if (product.getBrand() != null) {
+            brands.computeIfAbsent(product.getBrand(), key -> new BitSet()).set(slot);
+        }
+        if (product.getPrice() != null) {
+            priceBuckets.get(priceBucketOf(product.getPrice())).set(slot);
+        }
+        if (product.getStockQuantity() != null && product.getStockQuantity() > 0) {
+            inStock.set(slot);
+        }
+    }
+    
+    private void removeProduct(Long productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        inStock.clear(slot);
+        clearSlot(categories, slot, true);
+        clearSlot(brands, slot, true);
+        clearSlot(priceBuckets, slot, false);
+        freeSlots.push(slot);
+    }
+    
+    private void clearSlot(Map<String, BitSet> column, int slot, boolean dropEmpty) {
+        column.values().removeIf(bits -> {
+            bits.clear(slot);
+            return dropEmpty && bits.isEmpty();
+        });
+    }
+    
+    private String priceBucketOf(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal upper : priceBoundaries) {
+            if (price.compareTo(upper) < 0) {
+                return lower.toPlainString() + "-" + upper.toPlainString();
+            }
+            lower = upper;
+        }
+        return lower.toPlainString() + "+";
+    }
+    
+    // null selection means "no filter on this facet"
+    private BitSet union(Map<String, BitSet> column, Collection<String> selected) {
+        BitSet mask = (BitSet) live.clone();
+        if (selected == null || selected.isEmpty()) {
+            return mask;
+        }
+        BitSet union = new BitSet();
+        for (String value : selected) {
+            BitSet bits = column.get(value);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        mask.and(union);
+        return mask;
+    }
+    
+    private BitSet stockMask(Boolean wantInStock) {
+        BitSet mask = (BitSet) live.clone();
+        if (wantInStock == null) {
+            return mask;
+        }
+        if (wantInStock) {
+            mask.and(inStock);
+        } else {
+            mask.andNot(inStock);
+        }
+        return mask;
+    }
+    
+    private BitSet intersect(BitSet... masks) {
+        BitSet result = (BitSet) masks[0].clone();
+        for (int i = 1; i < masks.length; i++) {
+            result.and(masks[i]);
+        }
+        return result;
+    }
+    
+    private Map<String, Integer> count(Map<String, BitSet> column, BitSet mask) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> entry : column.entrySet()) {
+            counts.put(entry.getKey(), countAnd(entry.getValue(), mask));
+        }
+        return counts;
+    }
+    
+    private int countAnd(BitSet bits, BitSet mask) {
+        BitSet and = (BitSet) bits.clone();
+        and.and(mask);
+        return and.cardinality();
+    }
+
+}
\ No newline at end of file
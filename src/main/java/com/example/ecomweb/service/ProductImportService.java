@@ -0,0 +1,394 @@
+package com.example.ecomweb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Bulk catalog import. Rows are parsed one at a time from the request stream, validated,
+// and written with JDBC batch inserts, bypassing the per-entity IDENTITY inserts of JPA.
+@Service
+public class ProductImportService {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO products (name, description, price, stock_quantity, category, brand, image_url, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    // Only the first errors are reported individually; the rest are just counted
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    
+    public enum Format {
+        CSV, NDJSON;
+        
+        public static Format fromContentType(String contentType) {
+            if (contentType != null) {
+                String type = contentType.toLowerCase(Locale.ROOT);
+                if (type.startsWith("text/csv")) {
+                    return CSV;
+                }
+                if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+                    return NDJSON;
+                }
+            }
+            throw new IllegalArgumentException("Import expects text/csv or application/x-ndjson content");
+        }
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+    
+    private static class ImportRow {
+        final long rowNumber;
+        final Object[] values;
+        
+        ImportRow(long rowNumber, Object[] values) {
+            this.rowNumber = rowNumber;
+            this.values = values;
+        }
+    }
+    
+    private class ImportRun {
+        final Consumer<Map<String, Object>> events;
+        final List<ImportRow> batch = new ArrayList<>();
+        long rows;
+        long imported;
+        long failed;
+        
+        ImportRun(Consumer<Map<String, Object>> events) {
+            this.events = events;
+        }
+        
+        void accept(long rowNumber, Map<String, String> fields) {
+            rows++;
+            try {
+                batch.add(new ImportRow(rowNumber, toValues(fields)));
+            } catch (IllegalArgumentException e) {
+                fail(rowNumber, e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        void fail(long rowNumber, String message) {
+            failed++;
+            if (failed <= MAX_REPORTED_ERRORS) {
+                Map<String, Object> event = new LinkedHashMap<>();
+                event.put("type", "error");
+                event.put("row", rowNumber);
+                event.put("error", message);
+                events.accept(event);
+            }
+        }
+        
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Long> insertedIds = new ArrayList<>(batch.size());
+            try {
+                // The driver may split the batch into several multi-row INSERTs; one transaction
+                // makes it all or nothing, so the replay below never inserts a row twice
+                insertedIds.addAll(new TransactionTemplate(transactionManager).execute(status -> insertBatch(batch)));
+                imported += batch.size();
+            } catch (DataAccessException e) {
+                // Replay the failed batch row by row so only the offending rows are rejected
+                insertedIds.clear();
+                for (ImportRow row : batch) {
+                    try {
+                        insertedIds.add(insertRow(row));
+                        imported++;
+                    } catch (DataAccessException rowError) {
+                        fail(row.rowNumber, rowError.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            batch.clear();
+            // Only this batch's rows are loaded into the in-memory views, not the whole catalog
+            productService.publishInserted(insertedIds);
+            
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("type", "progress");
+            event.put("rows", rows);
+            event.put("imported", imported);
+            event.put("failed", failed);
+            events.accept(event);
+        }
+    }
+    
+    // Events (row errors, progress after every batch, final summary) are handed to the caller
+    // as they happen; the summary is also returned
+    public Map<String, Object> importProducts(InputStream in, Format format, Consumer<Map<String, Object>> events) throws IOException {
+        long started = System.currentTimeMillis();
+        ImportRun run = new ImportRun(events);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        
+        if (format == Format.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.flush();
+        
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("type", "summary");
+        summary.put("rows", run.rows);
+        summary.put("imported", run.imported);
+        summary.put("failed", run.failed);
+        summary.put("durationMs", System.currentTimeMillis() - started);
+        events.accept(summary);
+        System.out.println("Product import finished: " + run.imported + " imported, " + run.failed + " failed");
+        return summary;
+    }
+    
+    private List<Long> insertBatch(List<ImportRow> rows) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            List<Long> ids = new ArrayList<>(rows.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    for (int i = 0; i < row.values.length; i++) {
+                        statement.setObject(i + 1, row.values[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+    
+    private Long insertRow(ImportRow row) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < row.values.length; i++) {
+                statement.setObject(i + 1, row.values[i]);
+            }
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+    
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        String line;
+        long rowNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (!node.isObject()) {
+                    throw new IllegalArgumentException("Expected a JSON object");
+                }
+                for (Map.Entry<String, JsonNode> field : node.properties()) {
+                    if (!field.getValue().isNull()) {
+                        fields.put(normalizeColumn(field.getKey()), field.getValue().asText());
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                run.rows++;
+                run.fail(rowNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                run.rows++;
+                run.fail(rowNumber, e.getMessage());
+                continue;
+            }
+            run.accept(rowNumber, fields);
+        }
+    }
+    
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            header.set(i, normalizeColumn(header.get(i)));
+        }
+        if (!header.contains("name") || !header.contains("price")) {
+            throw new IllegalArgumentException("CSV header must contain at least name and price columns");
+        }
+        
+        // Row numbers count data rows, so row 1 is the first line after the header
+        long rowNumber = 0;
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            rowNumber++;
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < record.size(); i++) {
+                fields.put(header.get(i), record.get(i));
+            }
+            run.accept(rowNumber, fields);
+        }
+    }
+    
+    // RFC 4180: quoted fields may contain commas, doubled quotes and line breaks
+    private List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private String normalizeColumn(String column) {
+        String key = column.trim().toLowerCase(Locale.ROOT).replace("_", "");
+        if (key.startsWith("\uFEFF")) {
+            key = key.substring(1);
+        }
+        switch (key) {
+            case "stock":
+            case "stockquantity":
+                return "stockquantity";
+            case "image":
+            case "imageurl":
+                return "imageurl";
+            default:
+                return key;
+        }
+    }
+    
+    // Mirrors the constraints on the Product entity and its column sizes
+    private Object[] toValues(Map<String, String> fields) {
+        String name = trimToNull(fields.get("name"));
+        if (name == null) {
+            throw new IllegalArgumentException("Product name is required");
+        }
+        
+        BigDecimal price;
+        String priceValue = trimToNull(fields.get("price"));
+        if (priceValue == null) {
+            throw new IllegalArgumentException("Price is required");
+        }
+        try {
+            price = new BigDecimal(priceValue);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + priceValue);
+        }
+        if (price.signum() <= 0) {
+            throw new IllegalArgumentException("Price must be greater than 0");
+        }
+        
+        int stockQuantity = 0;
+        String stockValue = trimToNull(fields.get("stockquantity"));
+        if (stockValue != null) {
+            try {
+                stockQuantity = Integer.parseInt(stockValue);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid stock quantity: " + stockValue);
+            }
+            if (stockQuantity < 0) {
+                throw new IllegalArgumentException("Stock quantity cannot be negative");
+            }
+        }
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return new Object[] {
+            checkLength("name", name, 255),
+            checkLength("description", trimToNull(fields.get("description")), 1000),
+            price,
+            stockQuantity,
+            checkLength("category", trimToNull(fields.get("category")), 255),
+            checkLength("brand", trimToNull(fields.get("brand")), 255),
+            checkLength("imageUrl", trimToNull(fields.get("imageurl")), 255),
+            now,
+            now
+        };
+    }
+    
+    private String checkLength(String field, String value, int maxLength) {
+        if (value != null && value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " must be at most " + maxLength + " characters");
+        }
+        return value;
+    }
+    
+    private String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
\ No newline at end of file
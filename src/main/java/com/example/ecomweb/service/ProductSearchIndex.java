@@ -0,0 +1,267 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over name, brand, category and description with BM25 ranking
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_PREFIX_EXPANSION = 64;
+    
+    // Field boosts, applied by counting a term several times (a simple BM25F)
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is",
+        "it", "of", "on", "or", "the", "to", "with");
+    
+    // term -> (product id -> weighted term frequency); sorted so the last query term can match by prefix
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public static class SearchResult {
+        private final List<Long> productIds;
+        private final int totalMatches;
+        
+        public SearchResult(List<Long> productIds, int totalMatches) {
+            this.productIds = productIds;
+            this.totalMatches = totalMatches;
+        }
+        
+        public List<Long> getProductIds() { return productIds; }
+        public int getTotalMatches() { return totalMatches; }
+    }
+    
+    @Override
+    public void rebuild(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onProductSaved(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void onProductDeleted(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // All query terms must match; the last one also matches as a prefix for search-as-you-type
+    public SearchResult search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new SearchResult(List.of(), 0);
+            }
+            double averageLength = (double) totalLength / documentCount;
+            
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean lastTerm = i == terms.size() - 1;
+                Map<Long, Double> termScores = scoreTerm(terms.get(i), lastTerm, documentCount, averageLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Double> combined = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            combined.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = combined;
+                }
+                if (scores.isEmpty()) {
+                    return new SearchResult(List.of(), 0);
+                }
+            }
+            
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            
+            List<Long> page = new ArrayList<>();
+            for (int i = Math.max(offset, 0); i < ranked.size() && page.size() < limit; i++) {
+                page.add(ranked.get(i).getKey());
+            }
+            return new SearchResult(page, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Map<Long, Double> scoreTerm(String term, boolean allowPrefix, int documentCount, double averageLength) {
+        List<Map<Long, Integer>> matches = new ArrayList<>();
+        Map<Long, Integer> exact = postings.get(term);
+        if (exact != null) {
+            matches.add(exact);
+        }
+        if (allowPrefix) {
+            int expanded = 0;
+            for (Map.Entry<String, Map<Long, Integer>> entry
+                    : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                if (++expanded > MAX_PREFIX_EXPANSION) {
+                    break;
+                }
+                matches.add(entry.getValue());
+            }
+        }
+        
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map<Long, Integer> posting : matches) {
+            double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                int length = documentLengths.get(entry.getKey());
+                double tf = entry.getValue();
+                double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                scores.merge(entry.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+    
+    private void addDocument(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        Map<String, Integer> termCounts = new HashMap<>();
+        countTerms(termCounts, product.getName(), NAME_WEIGHT);
+        countTerms(termCounts, product.getBrand(), BRAND_WEIGHT);
+        countTerms(termCounts, product.getCategory(), CATEGORY_WEIGHT);
+        countTerms(termCounts, product.getDescription(), DESCRIPTION_WEIGHT);
+        
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> new HashMap<>()).put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(product.getId(), termCounts);
+        documentLengths.put(product.getId(), length);
+        totalLength += length;
+    }
+    
+    private void removeDocument(Long productId) {
+        Map<String, Integer> termCounts = documents.remove(productId);
+        if (termCounts == null) {
+            return;
+        }
+        totalLength -= documentLengths.remove(productId);
+        for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+            Map<Long, Integer> posting = postings.get(entry.getKey());
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(entry.getKey());
+                }
+            }
+        }
+    }
+    
+    private void countTerms(Map<String, Integer> termCounts, String text, int weight) {
+        for (String term : tokenize(text)) {
+            termCounts.merge(term, weight, Integer::sum);
+        }
+    }
+    
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+    
+    // Light English suffix stripping; enough to fold plurals and common verb forms together
+    static String stem(String term) {
+        if (term.length() <= 3 || !Character.isLetter(term.charAt(term.length() - 1))) {
+            return term;
+        }
+        if (term.endsWith("ies") && term.length() > 4) {
+            return term.substring(0, term.length() - 3) + "y";
+        }
+        if (term.endsWith("sses") || term.endsWith("shes") || term.endsWith("ches") || term.endsWith("xes")) {
+            return term.substring(0, term.length() - 2);
+        }
+        if (term.endsWith("ing") && term.length() > 5) {
+            return undouble(term.substring(0, term.length() - 3));
+        }
+        if (term.endsWith("ed") && term.length() > 4) {
+            return undouble(term.substring(0, term.length() - 2));
+        }
+        if (term.endsWith("s") && !term.endsWith("ss") && !term.endsWith("us") && !term.endsWith("is")) {
+            return term.substring(0, term.length() - 1);
+        }
+        return term;
+    }
+    
+    private static String undouble(String stem) {
+        int n = stem.length();
+        if (n > 2 && stem.charAt(n - 1) == stem.charAt(n - 2) && "lsz".indexOf(stem.charAt(n - 1)) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+}
\ No newline at end of file
@@ -1,11 +1,40 @@
 package com.example.ecomweb.service;
 
+import com.example.ecomweb.dto.CursorPage;
+import com.example.ecomweb.dto.ProductCursor;
+import com.example.ecomweb.dto.ProductSort;
 import com.example.ecomweb.entity.Product;
 import com.example.ecomweb.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Service
 public class ProductService {
@@ -13,8 +42,58 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ImageService imageService;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private ProductCache productCache;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    
+    @Autowired
+    private List<ProductChangeListener> productChangeListeners;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private HotStockCounters hotStockCounters;
+    
+    @Autowired
+    private LowStockIndex lowStockIndex;
+    
+    // Load the in-memory catalog views once the application (and sample data) is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildProductIndexes() {
+        List<Product> products = productRepository.findAll();
+        for (ProductChangeListener listener : productChangeListeners) {
+            listener.rebuild(products);
+        }
+        catalogVersion.bump();
+        System.out.println("Product indexes built for " + products.size() + " products");
+    }
+    
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        return publishSaved(productRepository.save(product));
     }
     
     public List<Product> getAllProducts() {
@@ -22,7 +101,32 @@ public class ProductService {
     }
     
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return productCache.get(id, productRepository::findById);
+    }
+    
+    public Map<Long, Product> getProductsById(Collection<Long> ids) {
+        return productCache.getAll(ids, productRepository::findAllById);
+    }
+    
+    public Map<String, Object> getProductCacheStats() {
+        return productCache.getStats();
+    }
+    
+    public CursorPage<Product> getProductPage(String category, boolean availableOnly,
+                                              ProductSort sort, String after, int limit) {
+        if (sort == ProductSort.RELEVANCE) {
+            throw new IllegalArgumentException("Relevance sort is only available for search");
+        }
+        ProductCursor cursor = after == null || after.isBlank() ? null : ProductCursor.decode(after, sort);
+        
+        // Fetch one extra row to know whether another page exists
+        List<Product> rows = productRepository.findPage(category, availableOnly, sort, cursor, limit + 1);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        
+        List<Product> items = rows.subList(0, limit);
+        return new CursorPage<>(items, ProductCursor.after(sort, items.get(limit - 1)).encode());
     }
     
     public List<Product> getProductsByCategory(String category) {
@@ -30,46 +134,299 @@ public class ProductService {
     }
     
     public List<Product> searchProducts(String keyword) {
-        return productRepository.searchProducts(keyword);
+        return searchProducts(keyword, 0, Integer.MAX_VALUE);
+    }
+    
+    // Answered from the in-memory index in relevance order; only the hits are loaded from the database
+    public List<Product> searchProducts(String keyword, int offset, int limit) {
+        return loadInOrder(productSearchIndex.search(keyword, offset, limit).getProductIds());
+    }
+    
+    public CursorPage<Product> searchProductPage(String keyword, String after, int limit) {
+        int offset = after == null || after.isBlank() ? 0 : ProductCursor.decode(after, ProductSort.RELEVANCE).getOffset();
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(keyword, offset, limit);
+        List<Product> items = loadInOrder(result.getProductIds());
+        
+        int nextOffset = offset + result.getProductIds().size();
+        if (nextOffset >= result.getTotalMatches() || items.isEmpty()) {
+            return new CursorPage<>(items, null);
+        }
+        return new CursorPage<>(items, ProductCursor.atOffset(nextOffset, items.get(items.size() - 1).getId()).encode());
+    }
+    
+    private List<Product> loadInOrder(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            byId.put(product.getId(), product);
+        }
+        List<Product> products = new ArrayList<>();
+        for (Long productId : productIds) {
+            Product product = byId.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
     }
     
     public List<Product> getAvailableProducts() {
         return productRepository.findAvailableProducts();
     }
     
+    public Map<String, Object> getFacets(ProductFacetIndex.FacetFilter filter) {
+        return productFacetIndex.facets(filter);
+    }
+    
+    public List<ProductSuggestIndex.Suggestion> suggestProducts(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return productSuggestIndex.suggest(prefix, limit);
+    }
+    
     public List<String> getAllCategories() {
         return productRepository.findAllCategories();
     }
     
     public Product updateProduct(Product product) {
-        return productRepository.save(product);
+        return publishSaved(productRepository.save(product));
     }
     
     public void deleteProduct(Long id) {
+        String imageHash = productRepository.findById(id).map(Product::getImageHash).orElse(null);
         productRepository.deleteById(id);
+        releaseImage(imageHash);
+        publishDeleted(id);
+    }
+    
+    // The stored content type comes from sniffing the bytes, not from the upload headers
+    public Product saveProductWithImage(Product product, InputStream imageStream, String imageName) throws IOException {
+        String previousHash = product.getImageHash();
+        ImageService.StoredImage image = imageService.storeImage(imageStream);
+        product.setImageHash(image.getHash());
+        product.setImageName(imageName);
+        product.setImageType(image.getContentType());
+        product.setImageSize(image.getSize());
+        
+        Product savedProduct = productRepository.save(product);
+        if (previousHash != null && !previousHash.equals(savedProduct.getImageHash())) {
+            releaseImage(previousHash);
+        }
+        imageVariantService.generateVariantsAsync(savedProduct.getImageHash());
+        return publishSaved(savedProduct);
+    }
+    
+    public Product removeProductImage(Product product) {
+        String previousHash = product.getImageHash();
+        product.setImageHash(null);
+        product.setImageName(null);
+        product.setImageType(null);
+        product.setImageSize(null);
+        
+        Product savedProduct = productRepository.save(product);
+        releaseImage(previousHash);
+        return publishSaved(savedProduct);
+    }
+    
+    public Path getProductImagePath(Product product) {
+        if (product.getImageHash() == null) {
+            return null;
+        }
+        return imageService.resolveStoredImage(product.getImageHash());
+    }
+    
+    // Returns null while the variant is not ready yet; callers fall back to the original
+    public Path getProductImageVariantPath(Product product, ImageVariantService.Size size) {
+        if (product.getImageHash() == null) {
+            return null;
+        }
+        Path variant = imageVariantService.getVariant(product.getImageHash(), size);
+        if (variant == null) {
+            imageVariantService.generateVariantsAsync(product.getImageHash());
+        }
+        return variant;
+    }
+    
+    // Images are shared by content hash, so only drop the file once no product points at it
+    private void releaseImage(String imageHash) {
+        if (imageHash != null && productRepository.countByImageHash(imageHash) == 0) {
+            imageService.deleteStoredImage(imageHash);
+            imageVariantService.deleteVariants(imageHash);
+        }
     }
     
     public boolean isProductAvailable(Long productId, Integer quantity) {
-        Optional<Product> product = productRepository.findById(productId);
+        Optional<Product> product = getProductById(productId);
         return product.isPresent() && product.get().getStockQuantity() >= quantity;
     }
     
+    @Transactional
     public void updateStock(Long productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productRepository.save(product);
-        }
+        decrementStock(Map.of(productId, quantity));
     }
     
+    @Transactional
     public void restoreStock(Long productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            product.setStockQuantity(product.getStockQuantity() + quantity);
-            productRepository.save(product);
+        restoreStock(Map.of(productId, quantity));
+    }
+    
+    // Each row is decremented by one conditional UPDATE, so concurrent checkouts can never
+    // oversell and no row is read or locked beforehand. The whole set goes out as one JDBC
+    // batch in id order (a consistent lock order between orders); if any row lacks stock the
+    // exception rolls back every decrement of the batch. Products in hot stock mode are taken
+    // from their in-memory shards instead and handed back if the transaction rolls back.
+    @Transactional
+    public void decrementStock(Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> sorted = new TreeMap<>(quantitiesByProduct);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Long, Integer> takenFromShards = new HashMap<>();
+        registerHotStockCompensation(takenFromShards);
+        
+        List<Long> failed = new ArrayList<>();
+        List<Long> rowIds = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>(sorted.size());
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive");
+            }
+            switch (hotStockCounters.tryTake(entry.getKey(), entry.getValue())) {
+                case TAKEN -> takenFromShards.put(entry.getKey(), entry.getValue());
+                case INSUFFICIENT -> failed.add(entry.getKey());
+                case NOT_HOT -> {
+                    rowIds.add(entry.getKey());
+                    args.add(new Object[] { entry.getValue(), now, entry.getKey(), entry.getValue() });
+                }
+            }
+        }
+        
+        if (!args.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ? AND stock_quantity >= ?",
+                args);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    failed.add(rowIds.get(i));
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            Collections.sort(failed);
+            throw new InsufficientStockException(failed);
+        }
+        if (!rowIds.isEmpty()) {
+            publishRowsChanged(rowIds);
+        }
+    }
+    
+    // Splits the product's stock over in-memory shards so checkouts stop serializing on its row
+    public void enableHotStock(Long productId, int shards) {
+        if (!productRepository.existsById(productId)) {
+            throw new RuntimeException("Product not found");
+        }
+        // Start empty and let the first rebalance load the shards from the row
+        hotStockCounters.enable(productId, shards, 0);
+        rebalanceHotStock(productId);
+        System.out.println("Product " + productId + " switched to hot stock mode with " + shards + " shards");
+    }
+    
+    public void disableHotStock(Long productId) {
+        long pending = hotStockCounters.disable(productId);
+        if (pending != 0) {
+            foldHotStock(productId, pending);
+        }
+    }
+    
+    public Map<String, Object> getHotStockStats() {
+        return hotStockCounters.getStats();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.stock.hot.rebalance-interval-ms:1000}")
+    public void rebalanceHotStock() {
+        for (Long productId : hotStockCounters.getHotProductIds()) {
+            rebalanceHotStock(productId);
+        }
+    }
+    
+    // Shards are flushed to the rows on shutdown so no sold units are lost
+    @PreDestroy
+    public void flushHotStock() {
+        for (Long productId : hotStockCounters.getHotProductIds()) {
+            disableHotStock(productId);
+        }
+    }
+    
+    private void rebalanceHotStock(Long productId) {
+        try {
+            hotStockCounters.rebalance(productId, consumed -> foldHotStock(productId, consumed));
+        } catch (EmptyResultDataAccessException e) {
+            // Product deleted while hot
+            hotStockCounters.disable(productId);
+        } catch (DataAccessException e) {
+            System.err.println("Failed to rebalance hot stock for product " + productId + ": " + e.getMessage());
+        }
+    }
+    
+    // Subtracts units sold from the shards from the row and returns the row's stock afterwards.
+    // Both run in one transaction: if the read fails the subtraction is rolled back too, so the
+    // units still pending in the counter are not taken from the row a second time next pass.
+    private int foldHotStock(Long productId, long consumed) {
+        Integer stockQuantity = new TransactionTemplate(transactionManager).execute(txStatus -> {
+            if (consumed != 0) {
+                jdbcTemplate.update("UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?",
+                    consumed, Timestamp.valueOf(LocalDateTime.now()), productId);
+                publishRowsChanged(List.of(productId));
+            }
+            return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+        });
+        return stockQuantity != null ? stockQuantity : 0;
+    }
+    
+    private void registerHotStockCompensation(Map<Long, Integer> takenFromShards) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                Map<Long, Integer> toRow = new HashMap<>();
+                takenFromShards.forEach((productId, quantity) -> {
+                    if (!hotStockCounters.giveBack(productId, quantity)) {
+                        toRow.put(productId, quantity);
+                    }
+                });
+                if (toRow.isEmpty()) {
+                    return;
+                }
+                // Hot mode was switched off meanwhile and the taken units were folded into the row,
+                // so they go back there; the checkout's own transaction is over, hence a new one
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                try {
+                    transaction.executeWithoutResult(txStatus -> restoreStock(toRow));
+                } catch (RuntimeException e) {
+                    System.err.println("Could not return units " + toRow + " to stock after rollback: " + e.getMessage());
+                }
+            }
+        });
+    }
+    
+    @Transactional
+    public void restoreStock(Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> sorted = new TreeMap<>(quantitiesByProduct);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(sorted.size());
+        for (Map.Entry<Long, Integer> entry : sorted.entrySet()) {
+            args.add(new Object[] { entry.getValue(), now, entry.getKey() });
+        }
+        jdbcTemplate.batchUpdate(
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?", args);
+        publishRowsChanged(sorted.keySet());
     }
     
     public long getTotalProductsCount() {
@@ -77,6 +434,68 @@ public class ProductService {
     }
     
     public long getLowStockProductsCount() {
-        return productRepository.countByStockQuantityLessThanEqual(5);
+        return lowStockIndex.countAtOrBelow(lowStockIndex.getAlertThreshold());
+    }
+    
+    public Map<String, Object> getLowStockProducts(Integer threshold, int limit) {
+        int effectiveThreshold = threshold != null ? threshold : lowStockIndex.getAlertThreshold();
+        Map<String, Object> result = new HashMap<>();
+        result.put("threshold", effectiveThreshold);
+        result.put("count", lowStockIndex.countAtOrBelow(effectiveThreshold));
+        result.put("products", lowStockIndex.listAtOrBelow(effectiveThreshold, limit));
+        return result;
+    }
+    
+    public String getCatalogETag() {
+        return catalogVersion.getETag();
+    }
+    
+    public long getCatalogLastModified() {
+        return catalogVersion.getLastModified();
+    }
+    
+    // The version moves only after every view has applied the change, so a new ETag never labels stale data
+    private Product publishSaved(Product product) {
+        TransactionHooks.afterCommit(() -> {
+            productChangeListeners.forEach(listener -> listener.onProductSaved(product));
+            catalogVersion.bump();
+        });
+        return product;
+    }
+    
+    // Bulk-imported rows are written by JDBC; only they, not the whole catalog, reach the views
+    public void publishInserted(Collection<Long> productIds) {
+        if (!productIds.isEmpty()) {
+            publishRowsChanged(productIds);
+        }
+    }
+    
+    // JDBC writes (stock changes, imports) bypass the persistence context, so the products the
+    // caller has loaded are stale; the views are fed fresh rows read through a separate
+    // EntityManager after commit
+    private void publishRowsChanged(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        TransactionHooks.afterCommit(() -> {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                List<Product> products = entityManager
+                    .createQuery("SELECT p FROM Product p WHERE p.id IN :ids", Product.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+                for (Product product : products) {
+                    productChangeListeners.forEach(listener -> listener.onProductSaved(product));
+                }
+            } finally {
+                entityManager.close();
+            }
+            catalogVersion.bump();
+        });
+    }
+    
+    private void publishDeleted(Long productId) {
+        TransactionHooks.afterCommit(() -> {
+            productChangeListeners.forEach(listener -> listener.onProductDeleted(productId));
+            catalogVersion.bump();
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.Product;
+import com.example.ecomweb.repository.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Typeahead over product names and brands. Readers use an immutable array-backed trie whose nodes
+// carry their precomputed top completions; a background task rebuilds it and swaps the reference.
+@Component
+public class ProductSuggestIndex implements ProductChangeListener {
+    
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    
+    @Value("${app.catalog.suggest.max-results:10}")
+    private int maxResults;
+    
+    @Value("${app.catalog.suggest.popularity-refresh-ms:300000}")
+    private long popularityRefreshMs;
+    
+    // Latest name/brand/stock per product, maintained from product writes
+    private final Map<Long, ProductEntry> products = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile Map<Long, Long> unitsSold = Map.of();
+    private volatile long popularityLoadedAt;
+    
+    private volatile Trie trie = Trie.EMPTY;
+    
+    public static class Suggestion {
+        private final String text;
+        private final String type;
+        private final Long productId;
+        private final long unitsSold;
+        private final boolean inStock;
+        
+        public Suggestion(String text, String type, Long productId, long unitsSold, boolean inStock) {
+            this.text = text;
+            this.type = type;
+            this.productId = productId;
+            this.unitsSold = unitsSold;
+            this.inStock = inStock;
+        }
+        
+        public String getText() { return text; }
+        public String getType() { return type; }
+        public Long getProductId() { return productId; }
+        public long getUnitsSold() { return unitsSold; }
+        public boolean isInStock() { return inStock; }
+    }
+    
+    private record ProductEntry(String name, String brand, boolean inStock) {}
+    
+    @Override
+    public synchronized void rebuild(List<Product> snapshot) {
+        products.clear();
+        for (Product product : snapshot) {
+            onProductSaved(product);
+        }
+        refreshPopularity();
+        rebuildTrie();
+    }
+    
+    @Override
+    public void onProductSaved(Product product) {
+        if (product.getId() != null) {
+            boolean inStock = product.getStockQuantity() != null && product.getStockQuantity() > 0;
+            products.put(product.getId(), new ProductEntry(product.getName(), product.getBrand(), inStock));
+            dirty.set(true);
+        }
+    }
+    
+    @Override
+    public void onProductDeleted(Long productId) {
+        products.remove(productId);
+        dirty.set(true);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.catalog.suggest.rebuild-interval-ms:30000}",
+               initialDelayString = "${app.catalog.suggest.rebuild-interval-ms:30000}")
+    public synchronized void rebuildInBackground() {
+        if (System.currentTimeMillis() - popularityLoadedAt >= popularityRefreshMs) {
+            refreshPopularity();
+        } else if (!dirty.get()) {
+            return;
+        }
+        rebuildTrie();
+    }
+    
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.complete(normalize(prefix), Math.min(Math.max(limit, 0), maxResults));
+    }
+    
+    private void refreshPopularity() {
+        Map<Long, Long> sold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            sold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        unitsSold = sold;
+        popularityLoadedAt = System.currentTimeMillis();
+    }
+    
+    private void rebuildTrie() {
+        dirty.set(false);
+        Map<Long, Long> sold = unitsSold;
+        
+        List<Suggestion> entries = new ArrayList<>();
+        Map<String, long[]> brandStats = new HashMap<>();
+        Map<String, String> brandDisplay = new HashMap<>();
+        for (Map.Entry<Long, ProductEntry> entry : products.entrySet()) {
+            ProductEntry product = entry.getValue();
+            long productSold = sold.getOrDefault(entry.getKey(), 0L);
+            if (product.name() != null && !product.name().isBlank()) {
+                entries.add(new Suggestion(product.name(), "product", entry.getKey(), productSold, product.inStock()));
+            }
+            if (product.brand() != null && !product.brand().isBlank()) {
+                String brandKey = normalize(product.brand());
+                long[] stats = brandStats.computeIfAbsent(brandKey, key -> new long[2]);
+                stats[0] += productSold;
+                stats[1] |= product.inStock() ? 1 : 0;
+                brandDisplay.putIfAbsent(brandKey, product.brand());
+            }
+        }
+        for (Map.Entry<String, long[]> entry : brandStats.entrySet()) {
+            long[] stats = entry.getValue();
+            entries.add(new Suggestion(brandDisplay.get(entry.getKey()), "brand", null, stats[0], stats[1] == 1));
+        }
+        
+        // Rank order: in stock first, then by units sold, then alphabetically
+        entries.sort(Comparator.comparing(Suggestion::isInStock).reversed()
+                .thenComparing(Comparator.comparingLong(Suggestion::getUnitsSold).reversed())
+                .thenComparing(Suggestion::getText));
+        trie = Trie.build(entries, maxResults);
+    }
+    
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+    
+    private static final class Trie {
+        
+        static final Trie EMPTY = new Trie(new char[][] {{}}, new int[][] {{}}, new int[][] {{}}, new Suggestion[0]);
+        
+        // Node i: sorted edge labels, matching child node ids, and its top completions as rank ids
+        private final char[][] edgeLabels;
+        private final int[][] edgeTargets;
+        private final int[][] topRanks;
+        private final Suggestion[] byRank;
+        
+        private Trie(char[][] edgeLabels, int[][] edgeTargets, int[][] topRanks, Suggestion[] byRank) {
+            this.edgeLabels = edgeLabels;
+            this.edgeTargets = edgeTargets;
+            this.topRanks = topRanks;
+            this.byRank = byRank;
+        }
+        
+        List<Suggestion> complete(String prefix, int limit) {
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                int edge = Arrays.binarySearch(edgeLabels[node], prefix.charAt(i));
+                if (edge < 0) {
+                    return List.of();
+                }
+                node = edgeTargets[node][edge];
+            }
+            int[] ranks = topRanks[node];
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, ranks.length));
+            for (int i = 0; i < ranks.length && i < limit; i++) {
+                result.add(byRank[ranks[i]]);
+            }
+            return result;
+        }
+        
+        // Entries must already be in rank order; each is reachable from the start of every word
+        static Trie build(List<Suggestion> entries, int maxResults) {
+            BuildNode root = new BuildNode();
+            for (int rank = 0; rank < entries.size(); rank++) {
+                String key = normalize(entries.get(rank).getText());
+                for (int start = 0; start < key.length(); start++) {
+                    if (start == 0 || key.charAt(start - 1) == ' ') {
+                        root.insert(key, start, rank);
+                    }
+                }
+            }
+            
+            List<BuildNode> nodes = new ArrayList<>();
+            root.number(nodes);
+            char[][] labels = new char[nodes.size()][];
+            int[][] targets = new int[nodes.size()][];
+            int[][] tops = new int[nodes.size()][];
+            // Children are numbered after their parent, so walk backwards to fill tops bottom-up
+            for (int id = nodes.size() - 1; id >= 0; id--) {
+                BuildNode node = nodes.get(id);
+                labels[id] = new char[node.children.size()];
+                targets[id] = new int[node.children.size()];
+                int[] candidates = node.terminalRanks.stream().mapToInt(Integer::intValue).toArray();
+                int edge = 0;
+                for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+                    labels[id][edge] = child.getKey();
+                    targets[id][edge] = child.getValue().id;
+                    candidates = concat(candidates, tops[child.getValue().id]);
+                    edge++;
+                }
+                tops[id] = Arrays.stream(candidates).sorted().distinct().limit(maxResults).toArray();
+            }
+            return new Trie(labels, targets, tops, entries.toArray(new Suggestion[0]));
+        }
+        
+        private static int[] concat(int[] a, int[] b) {
+            int[] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+    }
+    
+    private static final class BuildNode {
+        final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        final List<Integer> terminalRanks = new ArrayList<>(1);
+        int id;
+        
+        void insert(String key, int from, int rank) {
+            BuildNode node = this;
+            for (int i = from; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new BuildNode());
+            }
+            node.terminalRanks.add(rank);
+        }
+        
+        void number(List<BuildNode> nodes) {
+            // Iterative pre-order so long keys cannot overflow the stack
+            List<BuildNode> stack = new ArrayList<>();
+            stack.add(this);
+            while (!stack.isEmpty()) {
+                BuildNode node = stack.remove(stack.size() - 1);
+                node.id = nodes.size();
+                nodes.add(node);
+                stack.addAll(node.children.values());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,255 @@
+package com.example.ecomweb.service;
+
+import com.example.ecomweb.entity.StockReservation;
+import com.example.ecomweb.repository.StockReservationRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stock held by cart lines until checkout or expiry. Holds live in memory and are guarded per
+// product, so adding to a cart never touches a products row; the table is only a periodic
+// snapshot that lets holds survive a restart.
+@Service
+public class StockReservationService {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.reservations.ttl-ms:900000}")
+    private long ttlMs;
+    
+    private final Map<Long, ProductHolds> holdsByProduct = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    
+    private static final class Hold {
+        int quantity;
+        long expiresAt;
+        
+        Hold(int quantity, long expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    // Holds of one product keyed by user; 'reserved' is their running sum
+    private static final class ProductHolds {
+        final Map<Long, Hold> byUser = new HashMap<>();
+        int reserved;
+        boolean retired;
+    }
+    
+    // Sets the user's hold on a product to exactly this quantity and restarts its TTL. Fails when
+    // the stock left after everyone else's holds cannot cover it. Expired holds still count until
+    // the sweeper drops them, which only errs on the side of not overselling.
+    public void reserve(Long userId, Long productId, int quantity, int stockQuantity) {
+        if (quantity <= 0) {
+            release(userId, productId);
+            return;
+        }
+        while (true) {
+            ProductHolds holds = holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds());
+            synchronized (holds) {
+                if (holds.retired) {
+                    // Emptied and unmapped concurrently; start over with a fresh entry
+                    continue;
+                }
+                Hold hold = holds.byUser.get(userId);
+                int current = hold != null ? hold.quantity : 0;
+                if (quantity > stockQuantity - (holds.reserved - current)) {
+                    rejected.incrementAndGet();
+                    if (holds.byUser.isEmpty()) {
+                        retire(productId, holds);
+                    }
+                    throw new RuntimeException("Insufficient stock");
+                }
+                long expiresAt = System.currentTimeMillis() + ttlMs;
+                if (hold == null) {
+                    holds.byUser.put(userId, new Hold(quantity, expiresAt));
+                } else {
+                    hold.quantity = quantity;
+                    hold.expiresAt = expiresAt;
+                }
+                holds.reserved += quantity - current;
+            }
+            dirty.set(true);
+            return;
+        }
+    }
+    
+    // Inside a transaction (checkout, clearing the cart) the hold is dropped only once it commits:
+    // by then the stock decrement is visible, so the units are never free for two carts at once
+    public void release(Long userId, Long productId) {
+        TransactionHooks.afterCommit(() -> {
+            ProductHolds holds = holdsByProduct.get(productId);
+            if (holds != null && releaseHold(productId, holds, userId)) {
+                dirty.set(true);
+            }
+        });
+    }
+    
+    public void releaseAll(Long userId) {
+        TransactionHooks.afterCommit(() -> {
+            boolean released = false;
+            for (Map.Entry<Long, ProductHolds> entry : holdsByProduct.entrySet()) {
+                released |= releaseHold(entry.getKey(), entry.getValue(), userId);
+            }
+            if (released) {
+                dirty.set(true);
+            }
+        });
+    }
+    
+    public int getReservedQuantity(Long productId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return holds.reserved;
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.reservations.sweep-interval-ms:30000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        for (Map.Entry<Long, ProductHolds> entry : holdsByProduct.entrySet()) {
+            ProductHolds holds = entry.getValue();
+            synchronized (holds) {
+                var iterator = holds.byUser.values().iterator();
+                while (iterator.hasNext()) {
+                    Hold hold = iterator.next();
+                    if (hold.expiresAt <= now) {
+                        holds.reserved -= hold.quantity;
+                        iterator.remove();
+                        released++;
+                    }
+                }
+                if (holds.byUser.isEmpty()) {
+                    retire(entry.getKey(), holds);
+                }
+            }
+        }
+        if (released > 0) {
+            expired.addAndGet(released);
+            dirty.set(true);
+            System.out.println("Released " + released + " expired stock reservations");
+        }
+    }
+    
+    // Rewrites the snapshot table only when something changed since the last run
+    @Scheduled(fixedDelayString = "${app.reservations.persist-interval-ms:10000}")
+    public void persist() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Long, ProductHolds> entry : holdsByProduct.entrySet()) {
+            ProductHolds holds = entry.getValue();
+            synchronized (holds) {
+                for (Map.Entry<Long, Hold> hold : holds.byUser.entrySet()) {
+                    rows.add(new Object[] {
+                        hold.getKey(), entry.getKey(), hold.getValue().quantity,
+                        Timestamp.from(Instant.ofEpochMilli(hold.getValue().expiresAt))
+                    });
+                }
+            }
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM stock_reservations");
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO stock_reservations (user_id, product_id, quantity, expires_at) VALUES (?, ?, ?, ?)", rows);
+            });
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            System.err.println("Failed to persist stock reservations: " + e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void persistOnShutdown() {
+        persist();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        List<StockReservation> saved = stockReservationRepository.findByExpiresAtAfter(LocalDateTime.now());
+        for (StockReservation reservation : saved) {
+            long expiresAt = reservation.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            ProductHolds holds = holdsByProduct.computeIfAbsent(reservation.getProductId(), id -> new ProductHolds());
+            synchronized (holds) {
+                Hold previous = holds.byUser.put(reservation.getUserId(), new Hold(reservation.getQuantity(), expiresAt));
+                holds.reserved += reservation.getQuantity() - (previous != null ? previous.quantity : 0);
+            }
+        }
+        if (!saved.isEmpty()) {
+            System.out.println("Restored " + saved.size() + " stock reservations");
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        int activeHolds = 0;
+        long reservedUnits = 0;
+        for (ProductHolds holds : holdsByProduct.values()) {
+            synchronized (holds) {
+                activeHolds += holds.byUser.size();
+                reservedUnits += holds.reserved;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("products", holdsByProduct.size());
+        stats.put("activeHolds", activeHolds);
+        stats.put("reservedUnits", reservedUnits);
+        stats.put("expired", expired.get());
+        stats.put("rejected", rejected.get());
+        stats.put("ttlMs", ttlMs);
+        return stats;
+    }
+    
+    private boolean releaseHold(Long productId, ProductHolds holds, Long userId) {
+        synchronized (holds) {
+            Hold hold = holds.byUser.remove(userId);
+            if (hold == null) {
+                return false;
+            }
+            holds.reserved -= hold.quantity;
+            if (holds.byUser.isEmpty()) {
+                retire(productId, holds);
+            }
+            return true;
+        }
+    }
+    
+    // Caller holds the monitor; marking the entry lets a racing reserve() notice and retry
+    private void retire(Long productId, ProductHolds holds) {
+        holds.retired = true;
+        holdsByProduct.remove(productId, holds);
+    }
+}
\ No newline at end of file
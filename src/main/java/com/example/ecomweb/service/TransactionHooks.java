@@ -0,0 +1,25 @@
+package com.example.ecomweb.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Defers in-memory side effects of a write until the transaction that made it commits
+final class TransactionHooks {
+    
+    private TransactionHooks() {}
+    
+    // Runs the action after the current transaction commits, or right away outside of one;
+    // on rollback it never runs
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
\ No newline at end of file
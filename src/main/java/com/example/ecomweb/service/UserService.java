@@ -5,6 +5,7 @@ import com.example.ecomweb.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +42,14 @@ public class UserService {
         return userRepository.findById(id);
     }
     
+    public boolean existsById(Long id) {
+        return userRepository.existsById(id);
+    }
+    
+    public List<User> findAllById(Collection<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
+    
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -263,7 +263,7 @@ function displayHomeProducts(products) {
     container.innerHTML = products.map(product => `
         <div class="product-card">
             <div class="product-image">
-                <img src="${getProductImageUrl(product)}" 
+                <img src="${getProductImageUrl(product, 'medium')}" 
                      alt="${product.name}"
                      onerror="handleImageError(this)">
                 ${product.stockQuantity <= 5 && product.stockQuantity > 0 ? '<div class="low-stock-badge">Low Stock</div>' : ''}
@@ -296,7 +296,7 @@ function displayAllProducts(products) {
     container.innerHTML = products.map(product => `
         <div class="product-card" data-category="${product.category}">
             <div class="product-image">
-                <img src="${getProductImageUrl(product)}" 
+                <img src="${getProductImageUrl(product, 'medium')}" 
                      alt="${product.name}"
                      onerror="handleImageError(this)">
                 ${product.stockQuantity <= 5 && product.stockQuantity > 0 ? '<div class="low-stock-badge">Low Stock</div>' : ''}
@@ -442,7 +442,7 @@ function displayCartItems() {
     container.innerHTML = cartItems.map(item => `
         <div class="cart-item">
             <div class="cart-item-image">
-                <img src="${getProductImageUrl(item.product)}" 
+                <img src="${getProductImageUrl(item.product, 'thumb')}" 
                      alt="${item.product.name}"
                      onerror="handleImageError(this)">
             </div>
@@ -637,7 +637,7 @@ function displayAdminProducts(products) {
     container.innerHTML = products.map(product => `
         <div class="admin-product-item">
             <div class="admin-product-image">
-                <img src="${getProductImageUrl(product)}" 
+                <img src="${getProductImageUrl(product, 'thumb')}" 
                      alt="${product.name}"
                      onerror="handleImageError(this)"
                      style="width: 60px; height: 60px; object-fit: cover; border-radius: 5px;">
@@ -715,30 +715,47 @@ async function deleteProduct(productId) {
     }
 }
 
-async function loadAdminOrders() {
+// Order summaries arrive a page at a time; "Load more" continues from the last cursor
+let adminOrdersCursor = null;
+
+async function loadAdminOrders(append = false) {
     try {
-        const response = await fetch(`${API_BASE}/orders/admin/all`);
-        const orders = await response.json();
-        displayAdminOrders(orders);
+        const params = new URLSearchParams({ limit: 50 });
+        const status = document.getElementById('order-status-filter').value;
+        if (status) {
+            params.set('status', status);
+        }
+        if (append && adminOrdersCursor) {
+            params.set('after', adminOrdersCursor);
+        }
+        const response = await fetch(`${API_BASE}/orders/admin/all?${params}`);
+        const page = await response.json();
+        adminOrdersCursor = page.nextCursor;
+        displayAdminOrders(page.items, append, page.hasMore);
     } catch (error) {
         showAlert('Failed to load orders', 'error');
     }
 }
 
-function displayAdminOrders(orders) {
+function filterOrdersByStatus() {
+    loadAdminOrders();
+}
+
+function displayAdminOrders(orders, append, hasMore) {
     const container = document.getElementById('admin-orders-list');
 
-    if (orders.length === 0) {
+    if (!append && orders.length === 0) {
         container.innerHTML = '<p>No orders found.</p>';
         return;
     }
 
-    container.innerHTML = orders.map(order => `
+    const html = orders.map(order => `
         <div class="admin-order-item">
             <h4>Order #${order.id}</h4>
-            <p>Customer: ${order.user.fullName} (${order.user.email})</p>
+            <p>Customer: ${order.customerName} (${order.customerEmail})</p>
             <p>Date: ${new Date(order.orderDate).toLocaleDateString()}</p>
             <p>Status: ${order.status}</p>
+            <p>Items: ${order.itemCount}</p>
             <p>Total: $${parseFloat(order.totalAmount).toFixed(2)}</p>
             <p>Shipping: ${order.shippingAddress}</p>
             <div class="admin-order-actions">
@@ -753,6 +770,20 @@ function displayAdminOrders(orders) {
             </div>
         </div>
     `).join('');
+
+    const moreButton = document.getElementById('admin-orders-more');
+    if (moreButton) {
+        moreButton.remove();
+    }
+    if (append) {
+        container.insertAdjacentHTML('beforeend', html);
+    } else {
+        container.innerHTML = html;
+    }
+    if (hasMore) {
+        container.insertAdjacentHTML('beforeend',
+            '<button id="admin-orders-more" class="btn" onclick="loadAdminOrders(true)">Load more</button>');
+    }
 }
 
 async function updateOrderStatus(orderId, status) {
@@ -964,9 +995,12 @@ function removeImagePreview() {
 }
 
 // Function to get image URL for products (from database or fallback)
-function getProductImageUrl(product) {
+// size: optional 'thumb', 'medium' or 'large' variant; omit for the original upload
+function getProductImageUrl(product, size) {
     if (product.hasImage) {
-        return `${API_BASE}/images/product/${product.id}`;
+        // The content hash makes the URL immutable, so the browser can cache it indefinitely
+        const sizeParam = size ? `&size=${size}` : '';
+        return `${API_BASE}/images/product/${product.id}?v=${product.imageHash}${sizeParam}`;
     }
     return product.imageUrl || PLACEHOLDER_IMAGE;
 }